@@ -0,0 +1,369 @@
+package packSocialNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * AdjacencyGraph stores the relations of the Social Network as an undirected graph in compressed sparse row (CSR)
+ * format: the neighbors of the user u are neighbors[offsets[u]] ... neighbors[offsets[u+1]-1].
+ * New relations are written into a small delta buffer that is periodically compacted into the CSR arrays, keeping
+ * the insertion order of the neighbors of each user. Every relation is also kept as a (min,max) key in a primitive
+ * hash set, so checking if a relation exists costs constant time. The compaction is synchronized, so several
+ * readers can get the CSR arrays at the same time while no one adds relations.
+ * A frozen copy of the graph (see freeze()) shares the CSR arrays, that are never modified once compacted, and the
+ * delta buffer, of which it only reads the relations it has: the graph appends after them, and replaces the buffer
+ * by a new one when it grows or is compacted, so it never writes where a copy reads.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class AdjacencyGraph {
+
+    // Attributes
+    private static final int MIN_DELTA_CAPACITY = 16;
+    private static final int MIN_COMPACTION = 1024;
+    private int vertices;
+    private int edges;
+    private int[] offsets;
+    private int[] neighbors;
+    private int[] deltaFrom;
+    private int[] deltaTo;
+    private int deltaSize;
+    private LongHashSet edgeSet;                            // null in a frozen copy
+    private final boolean frozen;
+
+    // Constructors
+    /**
+     * Creates an empty graph.
+     */
+    public AdjacencyGraph() {
+        this.vertices = 0;
+        this.edges = 0;
+        this.offsets = new int[16];
+        this.neighbors = new int[0];
+        this.deltaFrom = new int[MIN_DELTA_CAPACITY];
+        this.deltaTo = new int[MIN_DELTA_CAPACITY];
+        this.deltaSize = 0;
+        this.edgeSet = new LongHashSet();
+        this.frozen = false;
+    }
+    /**
+     * Creates a frozen copy of a graph, sharing its arrays.
+     */
+    private AdjacencyGraph(int vertices, int edges, int[] offsets, int[] neighbors, int[] deltaFrom, int[] deltaTo, int deltaSize) {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.deltaFrom = deltaFrom;
+        this.deltaTo = deltaTo;
+        this.deltaSize = deltaSize;
+        this.edgeSet = null;
+        this.frozen = true;
+    }
+
+    // Methods
+    /**
+     * Adds a new user without relations to the graph.
+     * @return Index of the new user.
+     * @throws IllegalStateException If the graph is a frozen copy.
+     */
+    public int addVertex() {
+        checkNotFrozen();
+        if (vertices + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[vertices + 1] = offsets[vertices];          // New user has no compacted neighbors
+        return vertices++;
+    }
+    /**
+     * Adds an undirected relation between u and v to the delta buffer, compacting it if it grows too much.
+     * Pre: u and v are users of the graph and the relation does not exist yet.
+     * @param u Index of one user.
+     * @param v Index of the other user.
+     * @throws IllegalStateException If the graph is a frozen copy.
+     */
+    public void addEdge(int u, int v) {
+        checkNotFrozen();
+        if (deltaSize + 2 > deltaFrom.length) {
+            if (deltaSize >= Math.max(MIN_COMPACTION, neighbors.length / 8)) {
+                compact();
+            }
+            else {
+                deltaFrom = Arrays.copyOf(deltaFrom, deltaFrom.length * 2);
+                deltaTo = Arrays.copyOf(deltaTo, deltaTo.length * 2);
+            }
+        }
+        deltaFrom[deltaSize] = u;
+        deltaTo[deltaSize++] = v;
+        deltaFrom[deltaSize] = v;
+        deltaTo[deltaSize++] = u;
+        edgeSet.add(edgeKey(u, v));
+        edges++;
+    }
+    /**
+     * Adds a batch of relations in one pass: the keys are radix sorted to find the relations that are repeated in the
+     * batch or already in the graph, and the accepted ones are merged with the CSR arrays keeping the batch order.
+     * @param keys Relation keys (see edgeKey) in the order they have to be added.
+     * @param n Number of keys.
+     * @return Number of relations that were not added because they were repeated or already in the graph.
+     * @throws IllegalStateException If the graph is a frozen copy.
+     */
+    public int addEdges(long[] keys, int n) {
+        checkNotFrozen();
+        long[] sorted = Arrays.copyOf(keys, n);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        RadixSort.sort(sorted, order, n);
+        boolean[] accepted = new boolean[n];
+        int rejected = 0;
+        for (int i = 0; i < n; i++) {                       // Stable sort: first of each run is the first in the batch
+            if ((i > 0 && sorted[i] == sorted[i - 1]) || edgeSet.contains(sorted[i])) rejected++;
+            else accepted[order[i]] = true;
+        }
+        compact();
+        int[] newOffsets = new int[Math.max(offsets.length, vertices + 1)];
+        for (int u = 0; u < vertices; u++) {
+            newOffsets[u + 1] = offsets[u + 1] - offsets[u];
+        }
+        for (int i = 0; i < n; i++) {
+            if (accepted[i]) {
+                newOffsets[(int) (keys[i] >>> 32) + 1]++;
+                newOffsets[(int) keys[i] + 1]++;
+            }
+        }
+        for (int u = 0; u < vertices; u++) {
+            newOffsets[u + 1] += newOffsets[u];
+        }
+        int[] newNeighbors = new int[newOffsets[vertices]];
+        int[] fill = new int[vertices];
+        for (int u = 0; u < vertices; u++) {
+            int len = offsets[u + 1] - offsets[u];
+            System.arraycopy(neighbors, offsets[u], newNeighbors, newOffsets[u], len);
+            fill[u] = newOffsets[u] + len;
+        }
+        for (int i = 0; i < n; i++) {
+            if (accepted[i]) {
+                int u = (int) (keys[i] >>> 32);
+                int v = (int) keys[i];
+                newNeighbors[fill[u]++] = v;
+                newNeighbors[fill[v]++] = u;
+                edgeSet.add(keys[i]);
+                edges++;
+            }
+        }
+        offsets = newOffsets;
+        neighbors = newNeighbors;
+        return rejected;
+    }
+    /**
+     * Replaces all the relations of the graph with the given CSR arrays.
+     * Pre: offsets has vertexCount()+1 positions and the relations are symmetric.
+     * @param newOffsets CSR offsets.
+     * @param newNeighbors CSR neighbors.
+     * @throws IllegalStateException If the graph is a frozen copy.
+     */
+    public void loadCsr(int[] newOffsets, int[] newNeighbors) {
+        checkNotFrozen();
+        offsets = Arrays.copyOf(newOffsets, Math.max(offsets.length, vertices + 1));
+        neighbors = newNeighbors;
+        deltaSize = 0;
+        edgeSet = new LongHashSet(newNeighbors.length / 2);
+        for (int u = 0; u < vertices; u++) {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                if (u < neighbors[i]) edgeSet.add(edgeKey(u, neighbors[i]));
+            }
+        }
+        edges = edgeSet.size();
+    }
+    /**
+     * Checks if the relation between u and v exists. A frozen copy can not check it, it has no hash set.
+     * @param u Index of one user.
+     * @param v Index of the other user.
+     * @return true iif u and v are related; otherwise false.
+     */
+    public boolean hasEdge(int u, int v) {
+        return edgeSet.contains(edgeKey(u, v));
+    }
+    /**
+     * Obtains the key of an undirected relation, the same for (u,v) and (v,u).
+     * @param u Index of one user.
+     * @param v Index of the other user.
+     * @return The smaller index in the high 32 bits and the bigger one in the low 32 bits.
+     */
+    public static long edgeKey(int u, int v) {
+        return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+    }
+    /**
+     * Merges the delta buffer into the CSR arrays. The neighbors of each user keep the order they were added in.
+     */
+    public synchronized void compact() {
+        if (deltaSize == 0) return;
+        int[] newOffsets = new int[Math.max(offsets.length, vertices + 1)];
+        for (int u = 0; u < vertices; u++) {                // Degree of each user
+            newOffsets[u + 1] = offsets[u + 1] - offsets[u];
+        }
+        for (int i = 0; i < deltaSize; i++) {
+            newOffsets[deltaFrom[i] + 1]++;
+        }
+        for (int u = 0; u < vertices; u++) {                // Prefix sums
+            newOffsets[u + 1] += newOffsets[u];
+        }
+        int[] newNeighbors = new int[newOffsets[vertices]];
+        int[] fill = new int[vertices];
+        for (int u = 0; u < vertices; u++) {                // Old neighbors first
+            int len = offsets[u + 1] - offsets[u];
+            System.arraycopy(neighbors, offsets[u], newNeighbors, newOffsets[u], len);
+            fill[u] = newOffsets[u] + len;
+        }
+        for (int i = 0; i < deltaSize; i++) {               // Then the new ones in insertion order
+            newNeighbors[fill[deltaFrom[i]]++] = deltaTo[i];
+        }
+        offsets = newOffsets;
+        neighbors = newNeighbors;
+        deltaSize = 0;
+        deltaFrom = new int[MIN_DELTA_CAPACITY];            // Not reused, frozen copies may read the old buffer
+        deltaTo = new int[MIN_DELTA_CAPACITY];
+    }
+    /**
+     * Obtains a frozen copy of the graph, that has the relations added so far and can not be modified. It costs
+     * constant time: the copy shares the arrays, and compacts the relations of the delta buffer it has into its own
+     * CSR arrays when they are first read.
+     * @return The frozen copy.
+     */
+    public AdjacencyGraph freeze() {
+        return new AdjacencyGraph(vertices, edges, offsets, neighbors, deltaFrom, deltaTo, deltaSize);
+    }
+    /**
+     * Throws an exception if the graph is a frozen copy.
+     */
+    private void checkNotFrozen() {
+        if (frozen) throw new IllegalStateException("A frozen graph can not be modified");
+    }
+    /**
+     * Getter of the CSR offsets, compacting the delta buffer first.
+     * The neighbors of the user u are neighbors()[offsets()[u]] ... neighbors()[offsets()[u+1]-1].
+     * @return Offsets array, must not be modified.
+     */
+    public int[] offsets() {
+        compact();
+        return offsets;
+    }
+    /**
+     * Getter of the CSR neighbors, compacting the delta buffer first.
+     * @return Neighbors array, must not be modified.
+     */
+    public int[] neighbors() {
+        compact();
+        return neighbors;
+    }
+    /**
+     * Obtains the number of relations of a user.
+     * @param u Index of the user.
+     * @return Number of relations of the user.
+     */
+    public int degree(int u) {
+        compact();
+        return offsets[u + 1] - offsets[u];
+    }
+    /**
+     * Getter of the number of users.
+     * @return Number of users in the graph.
+     */
+    public int vertexCount() {
+        return vertices;
+    }
+    /**
+     * Getter of the number of relations.
+     * @return Number of undirected relations in the graph.
+     */
+    public int edgeCount() {
+        return edges;
+    }
+    /**
+     * Estimates the heap used by the graph.
+     * @return Approximate size in bytes of the arrays of the graph.
+     */
+    public long memoryBytes() {
+        return 4L * (offsets.length + neighbors.length + deltaFrom.length + deltaTo.length) + 4 * 16 + (edgeSet == null ? 0 : edgeSet.memoryBytes());
+    }
+    /**
+     * Estimates the heap the same graph would use stored as an ArrayList of ArrayList of Integer, for comparison.
+     * Each user costs an ArrayList (24 bytes) and its backing array (16 bytes), and each relation end costs a
+     * reference (4 bytes) and a boxed Integer (16 bytes).
+     * @return Approximate size in bytes of the boxed adjacency list layout.
+     */
+    public long listLayoutBytes() {
+        return 16L + 4L * vertices + 40L * vertices + 20L * 2 * edges;
+    }
+    /**
+     * Measures breadth-first traversals of a graph in CSR format against the same graph stored as an ArrayList of
+     * ArrayList of Integer, the layout SocialNetwork used before: every round runs a whole BFS from a different user
+     * on both layouts, so the speedup of the CSR arrays can be compared with the memory estimates.
+     * @param graph The graph.
+     * @param rounds Number of traversals on each layout.
+     * @return One line per layout with the relation ends it visited per second on this thread, in millions.
+     */
+    public static String benchmark(AdjacencyGraph graph, int rounds) {
+        int[] offsets = graph.offsets();
+        int[] neighbors = graph.neighbors();
+        int n = graph.vertexCount();
+        ArrayList<ArrayList<Integer>> lists = new ArrayList<ArrayList<Integer>>(n);
+        for (int u = 0; u < n; u++) {
+            ArrayList<Integer> l = new ArrayList<Integer>(offsets[u + 1] - offsets[u]);
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) l.add(neighbors[i]);
+            lists.add(l);
+        }
+        long[] ends = new long[2];
+        long[] nanos = new long[2];
+        int[] queue = new int[n];
+        boolean[] seen = new boolean[n];
+        for (int r = 0; r < rounds && n > 0; r++) {
+            int source = (int) ((long) r * 7919 % n);
+            long t = System.nanoTime();
+            Arrays.fill(seen, false);
+            int head = 0, tail = 0;
+            queue[tail++] = source;
+            seen[source] = true;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    int v = neighbors[i];
+                    if (!seen[v]) {
+                        seen[v] = true;
+                        queue[tail++] = v;
+                    }
+                }
+                ends[0] += offsets[u + 1] - offsets[u];
+            }
+            nanos[0] += System.nanoTime() - t;
+            t = System.nanoTime();
+            Arrays.fill(seen, false);                       // Same queue and marks, only the layout changes
+            head = 0;
+            tail = 0;
+            queue[tail++] = source;
+            seen[source] = true;
+            while (head < tail) {
+                ArrayList<Integer> l = lists.get(queue[head++]);
+                for (Integer v : l) {
+                    if (!seen[v]) {
+                        seen[v] = true;
+                        queue[tail++] = v;
+                    }
+                }
+                ends[1] += l.size();
+            }
+            nanos[1] += System.nanoTime() - t;
+        }
+        String[] names = {"CSR arrays", "ArrayList<ArrayList<Integer>>"};
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            double rate = nanos[i] == 0 ? 0 : (double) ends[i] * 1000 / nanos[i];
+            s.append("Traversal ").append(names[i]).append(": ").append(rounds).append(" BFS, ").append(ends[i])
+                    .append(" relation ends, ").append(String.format("%.1f", rate)).append(" M ends/s\n");
+        }
+        return s.toString();
+    }
+
+}
@@ -0,0 +1,132 @@
+package packSocialNetwork;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BatchMode runs the commands of a file against the Social Network without asking anything, writes their results
+ * in a ResultSink and reports the latency of each kind of command and the total throughput, so thousands of
+ * queries or a log of queries can be replayed against a build.
+ * The file has one command per line; empty lines and lines starting with # are ignored:
+ *   load people FILE | load relations FILE | load snapshot FILE | save snapshot FILE | save people FILE
+ *   add person CSV | add relation ID1 ID2
+ *   people | friends SURNAME | city CITY | born FROM TO | residential | collection MOVIE;MOVIE... | collections
+ *   movie TITLE | shortest ID1 ID2 | longest ID1 ID2 [SECONDS] | cliques [K] | degrees ID1 ID2
+ *   search ATTRIBUTE VALUE | query QUERY | stats | benchmark filters [ROUNDS] | benchmark traversal [ROUNDS]
+ *   stress READERS SECONDS
+ * Files are in the files/ directory, as in the menu.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class BatchMode {
+
+    // Attributes
+    private final SocialNetwork network;
+    private final LinkedHashMap<String, Latencies> latencies;
+    private int errors;
+
+    /**
+     * Latencies of the executions of one kind of command.
+     */
+    private static class Latencies {
+        private long[] nanos = new long[16];
+        private int size;
+
+        private void add(long n) {
+            if (size == nanos.length) nanos = Arrays.copyOf(nanos, size * 2);
+            nanos[size++] = n;
+        }
+        private long total() {
+            long t = 0;
+            for (int i = 0; i < size; i++) t += nanos[i];
+            return t;
+        }
+        /**
+         * Latency below which a fraction of the executions are, the executions must be sorted.
+         */
+        private long percentile(double p) {
+            return nanos[Math.min(size - 1, (int) Math.ceil(p * size) - 1)];
+        }
+    }
+
+    // Constructors
+    /**
+     * Creates a batch over a Social Network.
+     * @param network The Social Network.
+     */
+    public BatchMode(SocialNetwork network) {
+        this.network = network;
+        this.latencies = new LinkedHashMap<String, Latencies>();
+        this.errors = 0;
+    }
+
+    // Methods
+    /**
+     * Runs the commands of a file.
+     * @param commands The file of commands.
+     * @param out Where the results of the commands are written.
+     * @return The report of latencies and throughput (see report()).
+     * @throws IOException If the file can not be read.
+     */
+    public String run(Path commands, ResultSink out) throws IOException {
+        List<String> lines = Files.readAllLines(commands, Charset.defaultCharset());
+        long start = System.nanoTime();
+        for (String line : lines) {
+            String command = line.trim();
+            if (command.isEmpty() || command.startsWith("#")) continue;
+            long t = System.nanoTime();
+            try {
+                network.execute(command, out);
+            } catch (IllegalArgumentException e) {
+                out.line("Error: " + e.getMessage());
+                errors++;
+            }
+            t = System.nanoTime() - t;
+            latencies.computeIfAbsent(commandName(command), k -> new Latencies()).add(t);
+        }
+        out.flush();
+        return report(System.nanoTime() - start, out.bytes());
+    }
+    /**
+     * Obtains the name of a command: its first word, or its two first words for load, save, add and benchmark.
+     * @param command The command.
+     * @return The name of the command.
+     */
+    static String commandName(String command) {
+        String[] w = command.trim().split("\\s+", 3);
+        boolean two = w[0].equals("load") || w[0].equals("save") || w[0].equals("add") || w[0].equals("benchmark");
+        return two && w.length > 1 ? w[0] + " " + w[1] : w[0];
+    }
+    /**
+     * Gives the report of the commands run: for each kind of command, the number of executions and their total,
+     * mean, median, 99th percentile and maximum latency; and the total number of commands per second. Errors are the
+     * commands that do not exist or have wrong arguments.
+     * @param nanos Time the whole batch took.
+     * @param bytes Amount of output written.
+     * @return The report.
+     */
+    private String report(long nanos, long bytes) {
+        StringBuilder s = new StringBuilder(String.format("%-18s %8s %11s %10s %10s %10s %10s%n", "Command", "Count", "Total ms", "Mean us", "p50 us", "p99 us", "Max us"));
+        int count = 0;
+        for (Map.Entry<String, Latencies> e : latencies.entrySet()) {
+            Latencies l = e.getValue();
+            Arrays.sort(l.nanos, 0, l.size);
+            count += l.size;
+            s.append(String.format("%-18s %8d %11.1f %10.1f %10.1f %10.1f %10.1f%n", e.getKey(), l.size, l.total() / 1e6,
+                    l.total() / 1e3 / l.size, l.percentile(0.5) / 1e3, l.percentile(0.99) / 1e3, l.nanos[l.size - 1] / 1e3));
+        }
+        double seconds = nanos / 1e9;
+        s.append(String.format("Batch: %d commands (%d errors) in %.3f s, %.1f commands/s, %d bytes of results%n", count, errors, seconds,
+                seconds == 0 ? 0 : count / seconds, bytes));
+        return s.toString();
+    }
+
+}
@@ -0,0 +1,124 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+
+/**
+ * BirthdateIndex keeps the people sorted by birthdate (packed as yyyymmdd, see Person.dateKey) in two primitive
+ * arrays, so the people born in a range of dates are found with two binary searches.
+ * New people are appended to a buffer that is radix sorted and merged into the sorted arrays on the next query,
+ * so loading many people does not move the sorted arrays once per person. The merge is synchronized, so several
+ * readers can query the index at the same time while no one adds people.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class BirthdateIndex {
+
+    // Attributes
+    private static final int RADIX_THRESHOLD = 4096;        // Smaller buffers are not worth the radix counters
+    private int[] dates;                                    // Sorted birthdates
+    private int[] people;                                   // Index of the person of each birthdate
+    private int size;
+    private long[] pending;                                 // Birthdate in the high half and index in the low half
+    private int pendingSize;
+
+    // Constructors
+    /**
+     * Creates an empty index.
+     */
+    public BirthdateIndex() {
+        this.dates = new int[0];
+        this.people = new int[0];
+        this.pending = new long[16];
+    }
+
+    // Methods
+    /**
+     * Adds a person to the index.
+     * @param date Birthdate of the person packed as yyyymmdd, it is ignored if it is Person.NO_DATE.
+     * @param index Index of the person in the Social Network.
+     */
+    public void add(int date, int index) {
+        if (date == Person.NO_DATE) return;
+        if (pendingSize == pending.length) pending = Arrays.copyOf(pending, pendingSize * 2);
+        pending[pendingSize++] = ((long) date << 32) | index;
+    }
+    /**
+     * Obtains the people born between two dates.
+     * @param from First date (included) packed as yyyymmdd.
+     * @param to Last date (included) packed as yyyymmdd.
+     * @return Indexes of the people sorted by birthdate and, with the same birthdate, in the order they were added.
+     */
+    public int[] range(int from, int to) {
+        merge();
+        int lo = lowerBound(from);
+        int hi = to == Integer.MAX_VALUE ? size : lowerBound(to + 1);
+        return lo < hi ? Arrays.copyOfRange(people, lo, hi) : new int[0];
+    }
+    /**
+     * Counts the people born between two dates, without copying them.
+     * @param from First date (included) packed as yyyymmdd.
+     * @param to Last date (included) packed as yyyymmdd.
+     * @return Number of people.
+     */
+    public int count(int from, int to) {
+        merge();
+        int hi = to == Integer.MAX_VALUE ? size : lowerBound(to + 1);
+        return Math.max(0, hi - lowerBound(from));
+    }
+    /**
+     * Getter of the number of people in the index.
+     * @return Number of people with a valid birthdate.
+     */
+    public int size() {
+        return size + pendingSize;
+    }
+    /**
+     * Estimates the heap used by the index.
+     * @return Approximate size in bytes of the arrays.
+     */
+    public long memoryBytes() {
+        return 3 * 16 + 4L * dates.length + 4L * people.length + 8L * pending.length;
+    }
+    /**
+     * Position of the first birthdate that is not before the given one.
+     */
+    private int lowerBound(int date) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dates[mid] < date) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+    /**
+     * Sorts the pending people and merges them into the sorted arrays.
+     */
+    private synchronized void merge() {
+        if (pendingSize == 0) return;
+        if (pendingSize < RADIX_THRESHOLD) Arrays.sort(pending, 0, pendingSize);
+        else RadixSort.sort(pending, new int[pendingSize], pendingSize);
+        int total = size + pendingSize;
+        int[] nd = new int[total];
+        int[] np = new int[total];
+        int i = 0, j = 0, k = 0;
+        while (i < size || j < pendingSize) {               // People added before go first among equal birthdates
+            if (j == pendingSize || (i < size && dates[i] <= (int) (pending[j] >>> 32))) {
+                nd[k] = dates[i];
+                np[k++] = people[i++];
+            }
+            else {
+                nd[k] = (int) (pending[j] >>> 32);
+                np[k++] = (int) pending[j++];
+            }
+        }
+        dates = nd;
+        people = np;
+        size = total;
+        pendingSize = 0;
+        if (pending.length > 1024) pending = new long[16];
+    }
+
+}
@@ -0,0 +1,155 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+
+/**
+ * ChainSearch finds shortest chains of relations with a bidirectional Breadth-First Search over the CSR graph.
+ * It always expands the smaller frontier, and all its arrays (visited stamps, previous persons, distances and the
+ * queues) are kept between queries: an epoch number marks which entries belong to the current query, so a query
+ * does not allocate anything but the resulting chain.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class ChainSearch {
+
+    // Attributes
+    private int capacity;
+    private int epoch;
+    private int[] stampF, stampB;                           // Epoch in which the user was visited from each side
+    private int[] previousF, previousB;
+    private int[] distF, distB;
+    private int[] queueF, queueB;
+
+    // Constructors
+    /**
+     * Creates a search without arrays, they are created on the first query.
+     */
+    public ChainSearch() {
+        this.capacity = 0;
+        this.epoch = 0;
+    }
+
+    // Methods
+    /**
+     * Obtains a shortest chain of relations between two users.
+     * @param offsets CSR offsets of the graph.
+     * @param neighbors CSR neighbors of the graph.
+     * @param n Number of users of the graph.
+     * @param source Index of the initial user.
+     * @param target Index of the final user.
+     * @return Indexes of the users of the chain from source to target, or null if the chain does not exist.
+     */
+    public int[] shortestChain(int[] offsets, int[] neighbors, int n, int source, int target) {
+        return shortestChain(offsets, neighbors, n, source, target, Integer.MAX_VALUE);
+    }
+    /**
+     * Obtains a shortest chain of relations between two users, searching only the chains up to a length: the search
+     * stops when both sides together have expanded that many levels.
+     * @param offsets CSR offsets of the graph.
+     * @param neighbors CSR neighbors of the graph.
+     * @param n Number of users of the graph.
+     * @param source Index of the initial user.
+     * @param target Index of the final user.
+     * @param maxLength Maximum number of relations of the chain, e.g. an upper bound given by a LandmarkIndex.
+     * @return Indexes of the users of the chain from source to target, or null if there is no chain that short.
+     */
+    public int[] shortestChain(int[] offsets, int[] neighbors, int n, int source, int target, int maxLength) {
+        if (source == target) {
+            return offsets[source + 1] > offsets[source] ? new int[]{source} : null;
+        }
+        prepare(n);
+        stampF[source] = epoch;
+        distF[source] = 0;
+        previousF[source] = -1;
+        stampB[target] = epoch;
+        distB[target] = 0;
+        previousB[target] = -1;
+        queueF[0] = source;
+        queueB[0] = target;
+        int headF = 0, tailF = 1;
+        int headB = 0, tailB = 1;
+        int best = Integer.MAX_VALUE;
+        int meetU = -1, meetV = -1;                         // Relation where both searches meet, u on the source side
+        int levels = 0;                                     // Levels expanded by both sides
+        while (headF < tailF && headB < tailB && best == Integer.MAX_VALUE && levels < maxLength) {
+            levels++;
+            if (tailF - headF <= tailB - headB) {           // Expand a whole level of the smaller frontier
+                int levelEnd = tailF;
+                for (; headF < levelEnd; headF++) {
+                    int u = queueF[headF];
+                    for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                        int v = neighbors[i];
+                        if (stampB[v] == epoch && distF[u] + 1 + distB[v] < best) {
+                            best = distF[u] + 1 + distB[v];
+                            meetU = u;
+                            meetV = v;
+                        }
+                        if (stampF[v] != epoch) {
+                            stampF[v] = epoch;
+                            distF[v] = distF[u] + 1;
+                            previousF[v] = u;
+                            queueF[tailF++] = v;
+                        }
+                    }
+                }
+            }
+            else {
+                int levelEnd = tailB;
+                for (; headB < levelEnd; headB++) {
+                    int u = queueB[headB];
+                    for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                        int v = neighbors[i];
+                        if (stampF[v] == epoch && distF[v] + 1 + distB[u] < best) {
+                            best = distF[v] + 1 + distB[u];
+                            meetU = v;
+                            meetV = u;
+                        }
+                        if (stampB[v] != epoch) {
+                            stampB[v] = epoch;
+                            distB[v] = distB[u] + 1;
+                            previousB[v] = u;
+                            queueB[tailB++] = v;
+                        }
+                    }
+                }
+            }
+        }
+        if (best == Integer.MAX_VALUE) return null;
+        int[] chain = new int[best + 1];
+        int k = distF[meetU];
+        for (int x = meetU; x != -1; x = previousF[x]) {
+            chain[k--] = x;
+        }
+        k = distF[meetU] + 1;
+        for (int x = meetV; x != -1; x = previousB[x]) {
+            chain[k++] = x;
+        }
+        return chain;
+    }
+    /**
+     * Starts a new epoch, growing the arrays if the graph has more users than before.
+     * @param n Number of users of the graph.
+     */
+    private void prepare(int n) {
+        if (n > capacity) {
+            capacity = Math.max(n, capacity * 2);
+            stampF = new int[capacity];
+            stampB = new int[capacity];
+            previousF = new int[capacity];
+            previousB = new int[capacity];
+            distF = new int[capacity];
+            distB = new int[capacity];
+            queueF = new int[capacity];
+            queueB = new int[capacity];
+            epoch = 0;
+        }
+        if (++epoch == Integer.MAX_VALUE) {                 // Stamps would overflow, clear them
+            Arrays.fill(stampF, 0);
+            Arrays.fill(stampB, 0);
+            epoch = 1;
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package packSocialNetwork;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ChannelSink is a ResultSink that encodes the text into a fixed byte buffer and writes it to a channel each time
+ * the buffer is full, so the memory it uses does not depend on the size of the output, and a file is written with
+ * a few large writes instead of one per record.
+ * The text is encoded with the default charset, as FileWriter and System.out do.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class ChannelSink implements ResultSink {
+
+    // Attributes
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final WritableByteChannel channel;
+    private final boolean console;                          // The console is flushed but never closed
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer buffer;
+    private long written;
+
+    // Constructors
+    /**
+     * Creates a sink on a channel.
+     * @param channel The channel.
+     * @param console true if the channel is the console, that must not be closed.
+     */
+    private ChannelSink(WritableByteChannel channel, boolean console) {
+        this.channel = channel;
+        this.console = console;
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(BUFFER_SIZE / 4);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.written = 0;
+    }
+
+    // Methods
+    /**
+     * Creates a sink that writes to the console.
+     * @return The sink.
+     */
+    public static ChannelSink console() {
+        System.out.flush();
+        return new ChannelSink(Channels.newChannel(System.out), true);
+    }
+    /**
+     * Creates a sink that writes to a file, that is created or emptied.
+     * @param file The file.
+     * @return The sink.
+     * @throws IOException If the file can not be opened.
+     */
+    public static ChannelSink file(Path file) throws IOException {
+        return new ChannelSink(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), false);
+    }
+    /**
+     * Writes some text into the buffer, encoding it when the buffer of chars is full.
+     * @param text The text.
+     * @return This sink.
+     */
+    @Override public ChannelSink append(CharSequence text) {
+        int i = 0, n = text.length();
+        while (i < n) {
+            int k = Math.min(n - i, chars.remaining());
+            for (int j = 0; j < k; j++) chars.put(text.charAt(i + j));
+            i += k;
+            if (!chars.hasRemaining()) encode(false);
+        }
+        return this;
+    }
+    /**
+     * Writes everything buffered to the channel.
+     */
+    @Override public void flush() {
+        encode(false);
+        drain();
+        if (console) System.out.flush();
+    }
+    /**
+     * Getter of the amount of output.
+     * @return Number of bytes written to the channel or waiting in the buffer.
+     */
+    @Override public long bytes() {
+        return written + buffer.position();
+    }
+    /**
+     * Writes everything buffered and closes the channel, unless it is the console.
+     */
+    @Override public void close() {
+        try {
+            encode(true);
+            while (encoder.flush(buffer).isOverflow()) drain();
+            drain();
+        } finally {
+            if (console) System.out.flush();
+            else {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+    /**
+     * Encodes the pending chars into the byte buffer, writing it to the channel when it is full. A char that
+     * is the first half of a surrogate pair is kept until the next call.
+     * @param end true if no more text will be written.
+     */
+    private void encode(boolean end) {
+        chars.flip();
+        CoderResult r;
+        while ((r = encoder.encode(chars, buffer, end)).isOverflow()) drain();
+        chars.compact();
+        if (r.isError()) throw new IllegalStateException(r.toString());
+    }
+    /**
+     * Writes the byte buffer to the channel and empties it.
+     */
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) written += channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+}
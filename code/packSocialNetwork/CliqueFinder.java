@@ -0,0 +1,311 @@
+package packSocialNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * CliqueFinder finds cliques (groups of users where everyone is related to everyone) with the Bron-Kerbosch
+ * algorithm with pivoting. The users are processed in degeneracy order, so each top-level call only looks at the
+ * later neighbors of one user, and the top-level calls run in parallel on a fork-join pool. Sets of candidates are
+ * sorted int arrays that are intersected with the sorted neighbors of each user.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class CliqueFinder {
+
+    // Attributes
+    private static final int[] EMPTY = new int[0];
+    private static final int SEQUENTIAL_THRESHOLD = 16;
+    private final int n;
+    private final int[] offsets;
+    private final int[] adjacency;                          // Neighbors of each user sorted by index
+    private final int[] order;                              // Degeneracy order
+    private final int[] position;                           // Position of each user in the degeneracy order
+
+    // Constructors
+    /**
+     * Prepares the search over the given graph: sorts the neighbors of each user and computes the degeneracy order.
+     * @param offsets CSR offsets of the graph.
+     * @param neighbors CSR neighbors of the graph.
+     * @param n Number of users of the graph.
+     */
+    public CliqueFinder(int[] offsets, int[] neighbors, int n) {
+        this.n = n;
+        this.offsets = offsets;
+        this.adjacency = Arrays.copyOf(neighbors, offsets[n]);
+        for (int u = 0; u < n; u++) {
+            Arrays.sort(adjacency, offsets[u], offsets[u + 1]);
+        }
+        this.order = new int[n];
+        this.position = new int[n];
+        degeneracyOrder();
+    }
+
+    // Methods
+    /**
+     * Obtains all the maximal cliques that have at least minSize users.
+     * @param minSize Minimum number of users of the cliques.
+     * @return Cliques as sorted arrays of user indexes, the biggest first.
+     */
+    public ArrayList<int[]> maximalCliques(int minSize) {
+        ConcurrentLinkedQueue<int[]> found = new ConcurrentLinkedQueue<int[]>();
+        Search search = new Search(Math.max(1, minSize), false, found, null);
+        ForkJoinPool.commonPool().invoke(new TopLevelTask(search, 0, n));
+        ArrayList<int[]> res = new ArrayList<int[]>(found);
+        res.sort(BIGGEST_FIRST);
+        return res;
+    }
+    /**
+     * Obtains a clique with the maximum number of users.
+     * @return Sorted array of user indexes of a maximum clique, empty if there are no users.
+     */
+    public int[] maximumClique() {
+        AtomicReference<int[]> best = new AtomicReference<int[]>(n > 0 ? new int[]{0} : EMPTY);
+        Search search = new Search(1, true, null, best);
+        ForkJoinPool.commonPool().invoke(new TopLevelTask(search, 0, n));
+        return best.get();
+    }
+    /**
+     * Orders the cliques by size, the biggest first, and then by their users.
+     */
+    private static final Comparator<int[]> BIGGEST_FIRST = new Comparator<int[]>() {
+        @Override public int compare(int[] a, int[] b) {
+            if (a.length != b.length) return b.length - a.length;
+            return Arrays.compare(a, b);
+        }
+    };
+    /**
+     * Computes the degeneracy order: repeatedly removes the user with the fewest remaining relations.
+     */
+    private void degeneracyOrder() {
+        int maxDeg = 0;
+        int[] degree = new int[n];
+        for (int u = 0; u < n; u++) {
+            degree[u] = offsets[u + 1] - offsets[u];
+            maxDeg = Math.max(maxDeg, degree[u]);
+        }
+        int[] binStart = new int[maxDeg + 1];               // Bucket sort of the users by degree
+        for (int u = 0; u < n; u++) binStart[degree[u]]++;
+        int start = 0;
+        for (int d = 0; d <= maxDeg; d++) {
+            int c = binStart[d];
+            binStart[d] = start;
+            start += c;
+        }
+        for (int u = 0; u < n; u++) {
+            position[u] = binStart[degree[u]]++;
+            order[position[u]] = u;
+        }
+        for (int d = maxDeg; d > 0; d--) binStart[d] = binStart[d - 1];
+        binStart[0] = 0;
+        for (int i = 0; i < n; i++) {                       // order[i] has the minimum remaining degree
+            int v = order[i];
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int u = adjacency[k];
+                if (degree[u] > degree[v]) {                // Move u to the start of its bucket and decrease it
+                    int du = degree[u];
+                    int pu = position[u];
+                    int pw = binStart[du];
+                    int w = order[pw];
+                    if (u != w) {
+                        order[pu] = w;
+                        position[w] = pu;
+                        order[pw] = u;
+                        position[u] = pw;
+                    }
+                    binStart[du]++;
+                    degree[u]--;
+                }
+            }
+        }
+    }
+    /**
+     * Intersects a sorted set with the sorted neighbors of a user.
+     */
+    private int[] intersect(int[] set, int u) {
+        int[] res = new int[Math.min(set.length, offsets[u + 1] - offsets[u])];
+        int k = intersection(set, u, res);
+        return k == res.length ? res : Arrays.copyOf(res, k);
+    }
+    /**
+     * Intersects a sorted set with the sorted neighbors of a user, galloping when the set is much smaller (users
+     * with many relations would make a merge walk all of them).
+     * @param res Array for the common elements, or null to only count them.
+     * @return Number of common elements.
+     */
+    private int intersection(int[] set, int u, int[] res) {
+        int from = offsets[u];
+        int to = offsets[u + 1];
+        int k = 0;
+        if (set.length * 8 < to - from) {                   // Few elements, binary search them in the neighbors
+            for (int i = 0; i < set.length && from < to; i++) {
+                int pos = Arrays.binarySearch(adjacency, from, to, set[i]);
+                if (pos >= 0) {
+                    if (res != null) res[k] = set[i];
+                    k++;
+                    from = pos + 1;
+                }
+                else {
+                    from = -pos - 1;
+                }
+            }
+        }
+        else {
+            int i = 0;
+            while (i < set.length && from < to) {
+                if (set[i] < adjacency[from]) i++;
+                else if (set[i] > adjacency[from]) from++;
+                else {
+                    if (res != null) res[k] = set[i];
+                    k++;
+                    i++;
+                    from++;
+                }
+            }
+        }
+        return k;
+    }
+
+    /**
+     * One Bron-Kerbosch search, shared by all the top-level tasks.
+     */
+    private class Search {
+        private final int minSize;
+        private final boolean maximum;
+        private final ConcurrentLinkedQueue<int[]> found;
+        private final AtomicReference<int[]> best;
+
+        private Search(int minSize, boolean maximum, ConcurrentLinkedQueue<int[]> found, AtomicReference<int[]> best) {
+            this.minSize = minSize;
+            this.maximum = maximum;
+            this.found = found;
+            this.best = best;
+        }
+        /**
+         * Top-level call for a user: its later neighbors in degeneracy order are the candidates and the earlier
+         * ones are excluded.
+         */
+        private void searchFrom(int v) {
+            int deg = offsets[v + 1] - offsets[v];
+            int ps = 0;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (position[adjacency[k]] > position[v]) ps++;
+            }
+            if (ps + 1 < minSize || (maximum && ps + 1 <= best.get().length)) return;
+            int[] p = new int[ps];
+            int[] x = new int[maximum ? 0 : deg - ps];          // A maximum clique does not need to check maximality
+            ps = 0;
+            int xs = 0;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int u = adjacency[k];
+                if (position[u] > position[v]) p[ps++] = u;
+                else if (!maximum) x[xs++] = u;
+            }
+            expand(new int[]{v}, p, x);
+        }
+        /**
+         * Bron-Kerbosch with pivot: r is the clique being built, p the candidates and x the excluded users.
+         */
+        private void expand(int[] r, int[] p, int[] x) {
+            if (p.length == 0) {
+                if (x.length == 0) report(r);
+                return;
+            }
+            if (r.length + p.length < minSize) return;
+            if (maximum && r.length + p.length <= best.get().length) return;
+            int pivot = -1;                                 // Pivot maximizing the candidates it covers
+            int pivotCover = -1;
+            for (int[] set : new int[][]{p, x}) {
+                for (int u : set) {
+                    int cover = intersection(p, u, null);
+                    if (cover > pivotCover) {
+                        pivotCover = cover;
+                        pivot = u;
+                    }
+                }
+            }
+            int[] candidates = new int[p.length];
+            int cs = 0;
+            for (int v : p) {
+                if (Arrays.binarySearch(adjacency, offsets[pivot], offsets[pivot + 1], v) < 0) candidates[cs++] = v;
+            }
+            for (int c = 0; c < cs; c++) {
+                int v = candidates[c];
+                int[] nr = Arrays.copyOf(r, r.length + 1);
+                nr[r.length] = v;
+                expand(nr, intersect(p, v), intersect(x, v));
+                p = remove(p, v);
+                if (!maximum) x = insert(x, v);
+                if (maximum && r.length + p.length <= best.get().length) return;
+            }
+        }
+        /**
+         * Saves a maximal clique.
+         */
+        private void report(int[] r) {
+            if (r.length < minSize) return;
+            int[] clique = r.clone();
+            Arrays.sort(clique);
+            if (maximum) {
+                int[] current = best.get();
+                while (clique.length > current.length && !best.compareAndSet(current, clique)) {
+                    current = best.get();
+                }
+            }
+            else {
+                found.add(clique);
+            }
+        }
+        private int[] remove(int[] set, int v) {
+            int pos = Arrays.binarySearch(set, v);
+            int[] res = new int[set.length - 1];
+            System.arraycopy(set, 0, res, 0, pos);
+            System.arraycopy(set, pos + 1, res, pos, set.length - pos - 1);
+            return res;
+        }
+        private int[] insert(int[] set, int v) {
+            int pos = -Arrays.binarySearch(set, v) - 1;
+            int[] res = new int[set.length + 1];
+            System.arraycopy(set, 0, res, 0, pos);
+            res[pos] = v;
+            System.arraycopy(set, pos, res, pos + 1, set.length - pos);
+            return res;
+        }
+    }
+
+    /**
+     * Runs the top-level calls of a range of the degeneracy order, splitting it in halves.
+     */
+    private class TopLevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Search search;
+        private final int from;
+        private final int to;
+
+        private TopLevelTask(Search search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    search.searchFrom(order[i]);
+                }
+            }
+            else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TopLevelTask(search, from, mid), new TopLevelTask(search, mid, to));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package packSocialNetwork;
+
+import java.util.Collection;
+
+/**
+ * ColumnFilters are filter kernels over the int columns of a PersonColumns (packed birthdates and dictionary codes)
+ * that produce selection bitmaps: bit i of word i / 64 is set iif row i passes the filter.
+ * Every word of the bitmap is built from 64 rows without branches (the comparison is turned into a 0 or 1 with
+ * shifts), with the loop unrolled 8 rows at a time, so the JIT compiles it into straight-line code with independent
+ * compares that the CPU can pipeline. The plain loops with an if per row are kept as the scalar fallback and as the
+ * reference for the benchmark.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class ColumnFilters {
+
+    // Constructors
+    /**
+     * Not instantiable, only static methods.
+     */
+    private ColumnFilters() {}
+
+    // Methods
+    /**
+     * Selects the rows whose value is in a range.
+     * @param column The column.
+     * @param n Number of rows.
+     * @param from First value (included).
+     * @param to Last value (included).
+     * @return Selection bitmap of n bits.
+     */
+    public static long[] range(int[] column, int n, int from, int to) {
+        long[] bitmap = new long[(n + 63) >>> 6];
+        if (from > to) return bitmap;
+        long span = (long) to - from;                       // v is in range iif (v - from) as unsigned <= span
+        int full = n & ~63;
+        for (int base = 0; base < full; base += 64) {
+            long word = 0;
+            for (int j = 0; j < 64; j += 8) {
+                int k = base + j;
+                word |= (~(span - ((column[k] - (long) from) & 0xFFFFFFFFL)) >>> 63) << j
+                        | (~(span - ((column[k + 1] - (long) from) & 0xFFFFFFFFL)) >>> 63) << (j + 1)
+                        | (~(span - ((column[k + 2] - (long) from) & 0xFFFFFFFFL)) >>> 63) << (j + 2)
+                        | (~(span - ((column[k + 3] - (long) from) & 0xFFFFFFFFL)) >>> 63) << (j + 3)
+                        | (~(span - ((column[k + 4] - (long) from) & 0xFFFFFFFFL)) >>> 63) << (j + 4)
+                        | (~(span - ((column[k + 5] - (long) from) & 0xFFFFFFFFL)) >>> 63) << (j + 5)
+                        | (~(span - ((column[k + 6] - (long) from) & 0xFFFFFFFFL)) >>> 63) << (j + 6)
+                        | (~(span - ((column[k + 7] - (long) from) & 0xFFFFFFFFL)) >>> 63) << (j + 7);
+            }
+            bitmap[base >>> 6] = word;
+        }
+        for (int i = full; i < n; i++) {
+            if (column[i] >= from && column[i] <= to) bitmap[i >>> 6] |= 1L << i;
+        }
+        return bitmap;
+    }
+    /**
+     * Selects the rows whose value is one of a set of codes.
+     * @param column The column.
+     * @param n Number of rows.
+     * @param codes Bitmap of the codes accepted.
+     * @return Selection bitmap of n bits.
+     */
+    public static long[] in(int[] column, int n, long[] codes) {
+        long[] bitmap = new long[(n + 63) >>> 6];
+        int full = n & ~63;
+        for (int base = 0; base < full; base += 64) {
+            long word = 0;
+            for (int j = 0; j < 64; j += 8) {
+                int k = base + j;
+                word |= member(codes, column[k]) << j
+                        | member(codes, column[k + 1]) << (j + 1)
+                        | member(codes, column[k + 2]) << (j + 2)
+                        | member(codes, column[k + 3]) << (j + 3)
+                        | member(codes, column[k + 4]) << (j + 4)
+                        | member(codes, column[k + 5]) << (j + 5)
+                        | member(codes, column[k + 6]) << (j + 6)
+                        | member(codes, column[k + 7]) << (j + 7);
+            }
+            bitmap[base >>> 6] = word;
+        }
+        for (int i = full; i < n; i++) {
+            bitmap[i >>> 6] |= member(codes, column[i]) << i;
+        }
+        return bitmap;
+    }
+    /**
+     * Selects the rows whose value is a code.
+     * @param column The column.
+     * @param n Number of rows.
+     * @param code The code.
+     * @return Selection bitmap of n bits.
+     */
+    public static long[] equal(int[] column, int n, int code) {
+        long[] bitmap = new long[(n + 63) >>> 6];
+        int full = n & ~63;
+        for (int base = 0; base < full; base += 64) {
+            long word = 0;
+            for (int j = 0; j < 64; j += 8) {
+                int k = base + j;                           // (x as unsigned) - 1 is negative iif x == 0
+                word |= ((((column[k] ^ code) & 0xFFFFFFFFL) - 1) >>> 63) << j
+                        | ((((column[k + 1] ^ code) & 0xFFFFFFFFL) - 1) >>> 63) << (j + 1)
+                        | ((((column[k + 2] ^ code) & 0xFFFFFFFFL) - 1) >>> 63) << (j + 2)
+                        | ((((column[k + 3] ^ code) & 0xFFFFFFFFL) - 1) >>> 63) << (j + 3)
+                        | ((((column[k + 4] ^ code) & 0xFFFFFFFFL) - 1) >>> 63) << (j + 4)
+                        | ((((column[k + 5] ^ code) & 0xFFFFFFFFL) - 1) >>> 63) << (j + 5)
+                        | ((((column[k + 6] ^ code) & 0xFFFFFFFFL) - 1) >>> 63) << (j + 6)
+                        | ((((column[k + 7] ^ code) & 0xFFFFFFFFL) - 1) >>> 63) << (j + 7);
+            }
+            bitmap[base >>> 6] = word;
+        }
+        for (int i = full; i < n; i++) {
+            if (column[i] == code) bitmap[i >>> 6] |= 1L << i;
+        }
+        return bitmap;
+    }
+    /**
+     * Scalar fallback of range(): one branch per row.
+     * @param column The column.
+     * @param n Number of rows.
+     * @param from First value (included).
+     * @param to Last value (included).
+     * @return Selection bitmap of n bits.
+     */
+    public static long[] rangeScalar(int[] column, int n, int from, int to) {
+        long[] bitmap = new long[(n + 63) >>> 6];
+        for (int i = 0; i < n; i++) {
+            if (column[i] >= from && column[i] <= to) bitmap[i >>> 6] |= 1L << i;
+        }
+        return bitmap;
+    }
+    /**
+     * Scalar fallback of equal(): one branch per row.
+     * @param column The column.
+     * @param n Number of rows.
+     * @param code The code.
+     * @return Selection bitmap of n bits.
+     */
+    public static long[] equalScalar(int[] column, int n, int code) {
+        long[] bitmap = new long[(n + 63) >>> 6];
+        for (int i = 0; i < n; i++) {
+            if (column[i] == code) bitmap[i >>> 6] |= 1L << i;
+        }
+        return bitmap;
+    }
+    /**
+     * Counts the rows selected.
+     * @param bitmap Selection bitmap.
+     * @return Number of bits set.
+     */
+    public static int count(long[] bitmap) {
+        int c = 0;
+        for (long word : bitmap) c += Long.bitCount(word);
+        return c;
+    }
+    /**
+     * Measures the filters of a range of birth years and of a birthplace over all the people: the loops over the
+     * Person objects that SocialNetwork used, the scalar fallbacks and the kernels.
+     * @param people The people as columns.
+     * @param objects The same people as objects.
+     * @param rounds Times each filter is run.
+     * @return One line per filter with the rows it filtered per second on this thread, in millions.
+     */
+    public static String benchmark(PersonColumns people, Collection<Person> objects, int rounds) {
+        int n = people.size();
+        int[] dates = people.column(PersonColumns.DATE_KEY);
+        int[] places = people.column(PersonColumns.BIRTHPLACE);
+        int from = 19850000, to = 19909999;
+        int code = n > 0 ? places[0] : StringDictionary.NULL;
+        String place = StringDictionary.global().decode(code);
+        StringBuilder s = new StringBuilder();
+        int[] counts = new int[6];
+        long[] nanos = new long[6];
+        for (int r = 0; r < rounds; r++) {
+            long t = System.nanoTime();
+            int c = 0;
+            for (Person p : objects) {
+                if (p.getBirthdateKey() >= from && p.getBirthdateKey() <= to) c++;
+            }
+            counts[0] = c;
+            nanos[0] += System.nanoTime() - t;
+            t = System.nanoTime();
+            counts[1] = count(rangeScalar(dates, n, from, to));
+            nanos[1] += System.nanoTime() - t;
+            t = System.nanoTime();
+            counts[2] = count(range(dates, n, from, to));
+            nanos[2] += System.nanoTime() - t;
+            t = System.nanoTime();
+            c = 0;
+            for (Person p : objects) {
+                if (p.getBirthplace().equals(place)) c++;
+            }
+            counts[3] = c;
+            nanos[3] += System.nanoTime() - t;
+            t = System.nanoTime();
+            counts[4] = count(equalScalar(places, n, code));
+            nanos[4] += System.nanoTime() - t;
+            t = System.nanoTime();
+            counts[5] = count(equal(places, n, code));
+            nanos[5] += System.nanoTime() - t;
+        }
+        String[] names = {"Born 1985-1990, Person loop", "Born 1985-1990, scalar column", "Born 1985-1990, kernel",
+                "Birthplace " + place + ", Person loop", "Birthplace " + place + ", scalar column", "Birthplace " + place + ", kernel"};
+        for (int i = 0; i < names.length; i++) {
+            double rate = nanos[i] == 0 ? 0 : (double) n * rounds * 1000 / nanos[i];
+            s.append("Filter ").append(names[i]).append(": ").append(counts[i]).append(" rows, ")
+                    .append(String.format("%.1f", rate)).append(" M rows/s\n");
+        }
+        return s.toString();
+    }
+    /**
+     * Bit of a code in a bitmap of codes, 0 if the code is out of it.
+     */
+    private static long member(long[] codes, int v) {
+        int w = v >>> 6;
+        return w < codes.length ? (codes[w] >>> v) & 1 : 0;
+    }
+
+}
@@ -0,0 +1,158 @@
+package packSocialNetwork;
+
+/**
+ * IdentifierMap maps the identifiers of the people to their index in the Social Network with open addressing and
+ * linear probing over primitive arrays: the identifier is hashed directly (no Person is created to look it up),
+ * the index is not boxed and there is no entry object per person.
+ * The hash of each key is kept next to it, so a probe only compares the Strings whose hash is equal and resizing
+ * does not hash the keys again.
+ * A frozen copy of the map (see freeze()) shares its tables. The map goes on adding identifiers into them, only
+ * in empty slots, so the copy finds everything it had and may also find identifiers added after it (see
+ * NetworkVersion.indexOf); a resize gives the map new tables and the copy keeps the old ones.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class IdentifierMap {
+
+    // Attributes
+    public static final int NOT_FOUND = -1;
+    private String[] keys;
+    private int[] hashes;
+    private int[] values;
+    private int size;
+    private final boolean frozen;
+
+    // Constructors
+    /**
+     * Creates an empty map.
+     */
+    public IdentifierMap() {
+        this(16);
+    }
+    /**
+     * Creates an empty map that can hold the expected number of identifiers without resizing.
+     * @param expected Expected number of identifiers.
+     */
+    public IdentifierMap(int expected) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < expected) capacity <<= 1;
+        this.keys = new String[capacity];
+        this.hashes = new int[capacity];
+        this.values = new int[capacity];
+        this.size = 0;
+        this.frozen = false;
+    }
+    /**
+     * Creates a frozen copy of a map, sharing its tables.
+     */
+    private IdentifierMap(String[] keys, int[] hashes, int[] values, int size) {
+        this.keys = keys;
+        this.hashes = hashes;
+        this.values = values;
+        this.size = size;
+        this.frozen = true;
+    }
+
+    // Methods
+    /**
+     * Adds an identifier to the map.
+     * @param identifier The identifier, not null.
+     * @param index Index of its person, not negative.
+     * @return true if the identifier was not in the map; otherwise false and the map is not modified.
+     * @throws IllegalStateException If the map is a frozen copy.
+     */
+    public boolean put(String identifier, int index) {
+        if (frozen) throw new IllegalStateException("A frozen map can not be modified");
+        int h = mix(identifier.hashCode());
+        int mask = keys.length - 1;
+        int i = h & mask;
+        while (keys[i] != null) {
+            if (hashes[i] == h && keys[i].equals(identifier)) return false;
+            i = (i + 1) & mask;
+        }
+        keys[i] = identifier;
+        hashes[i] = h;
+        values[i] = index;
+        if (++size > keys.length * 3 / 4) resize();
+        return true;
+    }
+    /**
+     * Obtains the index of the person with an identifier.
+     * @param identifier The identifier.
+     * @return Its index, or NOT_FOUND if the identifier is null or it is not in the map.
+     */
+    public int get(String identifier) {
+        if (identifier == null) return NOT_FOUND;
+        int h = mix(identifier.hashCode());
+        int mask = keys.length - 1;
+        int i = h & mask;
+        while (keys[i] != null) {
+            if (hashes[i] == h && keys[i].equals(identifier)) return values[i];
+            i = (i + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+    /**
+     * Checks if an identifier is in the map.
+     * @param identifier The identifier.
+     * @return true iif the identifier is in the map; otherwise false.
+     */
+    public boolean contains(String identifier) {
+        return get(identifier) != NOT_FOUND;
+    }
+    /**
+     * Getter of the number of identifiers.
+     * @return Number of identifiers in the map.
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     * Obtains a frozen copy of the map, that can not be modified. It costs constant time: the copy shares the tables,
+     * so it finds the identifiers added so far, and maybe some added after it until the map is resized.
+     * @return The frozen copy.
+     */
+    public IdentifierMap freeze() {
+        return new IdentifierMap(keys, hashes, values, size);
+    }
+    /**
+     * Estimates the heap used by the map, without the identifiers, that belong to the people.
+     * @return Approximate size in bytes of the tables.
+     */
+    public long memoryBytes() {
+        return 3 * 16 + 12L * keys.length;
+    }
+    /**
+     * Doubles the tables and inserts again all the identifiers.
+     */
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        hashes = new int[keys.length];
+        values = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = oldHashes[j] & mask;
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                hashes[i] = oldHashes[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+    /**
+     * Spreads the bits of the hash of a String, whose low bits are poor for similar identifiers.
+     * @param h Hash of the String.
+     * @return Hash to probe with.
+     */
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
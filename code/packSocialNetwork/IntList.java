@@ -0,0 +1,75 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+
+/**
+ * IntList is a growable list of primitive ints, used for the posting lists (person indexes) of the indexes without
+ * boxing every index into an Integer.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class IntList {
+
+    // Attributes
+    private static final int[] EMPTY = new int[0];
+    private int[] values;
+    private int size;
+
+    // Constructors
+    /**
+     * Creates an empty list, the array is created on the first add.
+     */
+    public IntList() {
+        this.values = EMPTY;
+        this.size = 0;
+    }
+
+    // Methods
+    /**
+     * Adds a value at the end of the list.
+     * @param value Value to add.
+     */
+    public void add(int value) {
+        if (size == values.length) values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        values[size++] = value;
+    }
+    /**
+     * Getter of a value.
+     * @param i Position of the value, between 0 and size() - 1.
+     * @return Value at the position.
+     */
+    public int get(int i) {
+        return values[i];
+    }
+    /**
+     * Getter of the number of values.
+     * @return Number of values of the list.
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     * Checks if the list is empty.
+     * @return true iif the list has no values.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    /**
+     * Copies the values to a new array.
+     * @return Array with the values of the list.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+    /**
+     * Estimates the heap used by the list.
+     * @return Approximate size in bytes of the object and its array.
+     */
+    public long memoryBytes() {
+        return 16 + 16 + 4L * values.length;
+    }
+
+}
@@ -0,0 +1,112 @@
+package packSocialNetwork;
+
+import java.util.HashMap;
+
+/**
+ * InvertedIndex maps each value of an attribute to the posting list of the indexes of the people that have it, in
+ * the order they were added to the Social Network. Values are compared exactly (case sensitive), or ignoring case
+ * if the index is created so; then they are case-folded char by char, the same way String.equalsIgnoreCase does.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class InvertedIndex {
+
+    // Attributes
+    private static final IntList NONE = new IntList();
+    private final boolean ignoreCase;
+    private final HashMap<String, IntList> postings;
+    private long entries;
+
+    // Constructors
+    /**
+     * Creates an empty index that compares the values exactly.
+     */
+    public InvertedIndex() {
+        this(false);
+    }
+    /**
+     * Creates an empty index.
+     * @param ignoreCase true to compare the values ignoring case.
+     */
+    public InvertedIndex(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.postings = new HashMap<String, IntList>();
+        this.entries = 0;
+    }
+
+    // Methods
+    /**
+     * Adds a person to the posting list of a value. A person added twice in a row with the same value is only
+     * added once.
+     * @param value Value of the attribute of the person.
+     * @param index Index of the person in the Social Network.
+     */
+    public void add(String value, int index) {
+        String key = ignoreCase ? fold(value) : value;
+        IntList list = postings.get(key);
+        if (list == null) {
+            list = new IntList();
+            postings.put(key, list);
+        }
+        if (list.isEmpty() || list.get(list.size() - 1) != index) {
+            list.add(index);
+            entries++;
+        }
+    }
+    /**
+     * Obtains the people that have a value.
+     * @param value Value of the attribute.
+     * @return Posting list with the indexes of the people, empty if no one has the value. It must not be modified.
+     */
+    public IntList get(String value) {
+        IntList list = postings.get(ignoreCase ? fold(value) : value);
+        return list == null ? NONE : list;
+    }
+    /**
+     * Getter of the number of different values.
+     * @return Number of posting lists.
+     */
+    public int valueCount() {
+        return postings.size();
+    }
+    /**
+     * Getter of the number of indexes in all the posting lists.
+     * @return Number of entries of the index.
+     */
+    public long entryCount() {
+        return entries;
+    }
+    /**
+     * Removes all the posting lists.
+     */
+    public void clear() {
+        postings.clear();
+        entries = 0;
+    }
+    /**
+     * Case-folds a value char by char, so two values are equal after folding iif equalsIgnoreCase says so.
+     * @param value The value.
+     * @return The folded value.
+     */
+    public static String fold(String value) {
+        char[] c = value.toCharArray();
+        for (int i = 0; i < c.length; i++) {
+            c[i] = Character.toLowerCase(Character.toUpperCase(c[i]));
+        }
+        return new String(c);
+    }
+    /**
+     * Estimates the heap used by the index, without the values, that are shared with the people.
+     * @return Approximate size in bytes of the hash table, its entries and the posting lists.
+     */
+    public long memoryBytes() {
+        long bytes = 48 + 4L * Math.max(16, Integer.highestOneBit(Math.max(1, postings.size() * 4 / 3)) * 2);
+        for (IntList list : postings.values()) {
+            bytes += 32 + list.memoryBytes();               // HashMap node + posting list
+        }
+        return bytes;
+    }
+
+}
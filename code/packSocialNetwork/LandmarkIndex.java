@@ -0,0 +1,243 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+
+/**
+ * LandmarkIndex is a distance oracle for the degrees of separation between two users. It stores the distance of
+ * every user to k landmark users in byte arrays, and bounds the distance between a and b with the triangle
+ * inequality: |d(L,a) - d(L,b)| <= d(a,b) <= d(L,a) + d(L,b) for every landmark L.
+ * The index is built on demand. Relations added later are applied incrementally (distances can only decrease),
+ * and it is rebuilt from scratch when too many relations are pending. Its methods are synchronized, as any query
+ * can refresh it.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class LandmarkIndex {
+
+    // Attributes
+    public static final int UNKNOWN = -1;
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int NONE = 0xFF;                   // Stored distance of users not reachable from a landmark
+    private static final int SATURATED = 0xFE;              // Stored distance of users at 254 or more relations
+    private final int k;
+    private int[] landmarks;
+    private byte[][] dist;
+    private int users;
+    private boolean built;
+    private boolean stale;
+    private long[] pending;
+    private int pendingSize;
+    private long buildNanos;
+
+    // Constructors
+    /**
+     * Creates an empty index, it is built on the first query.
+     * @param k Maximum number of landmarks.
+     */
+    public LandmarkIndex(int k) {
+        this.k = k;
+        this.landmarks = new int[0];
+        this.dist = new byte[0][];
+        this.pending = new long[16];
+    }
+
+    // Methods
+    /**
+     * Notifies the index that a relation was added, it is applied on the next query.
+     * @param u Index of one user.
+     * @param v Index of the other user.
+     */
+    public synchronized void relationAdded(int u, int v) {
+        if (!built || stale) return;
+        if (pendingSize == pending.length) {
+            if (pendingSize >= Math.max(1024, users / 4)) {  // Cheaper to rebuild than to relax everything
+                stale = true;
+                pendingSize = 0;
+                return;
+            }
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+        }
+        pending[pendingSize++] = AdjacencyGraph.edgeKey(u, v);
+    }
+    /**
+     * Notifies the index that many relations changed, it is rebuilt on the next query.
+     */
+    public synchronized void invalidate() {
+        stale = true;
+        pendingSize = 0;
+    }
+    /**
+     * Estimates the degrees of separation between two users.
+     * @param offsets CSR offsets of the graph.
+     * @param neighbors CSR neighbors of the graph.
+     * @param n Number of users of the graph.
+     * @param a Index of one user.
+     * @param b Index of the other user.
+     * @return Lower bound and upper bound of the distance: {UNREACHABLE, UNREACHABLE} if there is no chain between
+     * the users, or UNKNOWN if no landmark gives information.
+     */
+    public synchronized int[] estimate(int[] offsets, int[] neighbors, int n, int a, int b) {
+        if (a == b) return new int[]{0, 0};
+        if (offsets[a + 1] == offsets[a] || offsets[b + 1] == offsets[b]) {
+            return new int[]{UNREACHABLE, UNREACHABLE};     // A user without relations is not related to anyone
+        }
+        refresh(offsets, neighbors, n);
+        int lower = 1;
+        int upper = UNKNOWN;
+        for (byte[] d : dist) {
+            int da = d[a] & 0xFF;
+            int db = d[b] & 0xFF;
+            if (da == NONE && db == NONE) continue;
+            if (da == NONE || db == NONE) return new int[]{UNREACHABLE, UNREACHABLE};   // Different components
+            if (da == SATURATED || db == SATURATED) continue;
+            lower = Math.max(lower, Math.abs(da - db));
+            if (upper == UNKNOWN || da + db < upper) upper = da + db;
+        }
+        return new int[]{upper == UNKNOWN ? UNKNOWN : lower, upper};
+    }
+    /**
+     * Checks if the index can prove that there is no chain between two users.
+     * @param offsets CSR offsets of the graph.
+     * @param neighbors CSR neighbors of the graph.
+     * @param n Number of users of the graph.
+     * @param a Index of one user.
+     * @param b Index of the other user.
+     * @return true if the users are not related by any chain; false if they are or it is not known.
+     */
+    public synchronized boolean unreachable(int[] offsets, int[] neighbors, int n, int a, int b) {
+        return estimate(offsets, neighbors, n, a, b)[0] == UNREACHABLE;
+    }
+    /**
+     * Brings the index up to date with the graph: builds it if needed and applies the pending relations.
+     */
+    private void refresh(int[] offsets, int[] neighbors, int n) {
+        if (!built || stale) {
+            build(offsets, neighbors, n);
+            return;
+        }
+        if (n > users) {                                    // New users are not reachable until a relation is applied
+            for (int l = 0; l < dist.length; l++) {
+                dist[l] = Arrays.copyOf(dist[l], n);
+                Arrays.fill(dist[l], users, n, (byte) NONE);
+            }
+            users = n;
+        }
+        int[] queue = pendingSize > 0 ? new int[n] : null;
+        for (int p = 0; p < pendingSize; p++) {
+            int u = (int) (pending[p] >>> 32);
+            int v = (int) pending[p];
+            for (byte[] d : dist) {
+                relax(offsets, neighbors, d, u, v, queue);
+                relax(offsets, neighbors, d, v, u, queue);
+            }
+        }
+        pendingSize = 0;
+    }
+    /**
+     * Propagates a shorter distance through the relation from u to v, if it gives one.
+     */
+    private static void relax(int[] offsets, int[] neighbors, byte[] d, int u, int v, int[] queue) {
+        int du = d[u] & 0xFF;
+        if (du == NONE || (d[v] & 0xFF) != NONE && du + 1 >= (d[v] & 0xFF)) return;
+        d[v] = (byte) Math.min(du + 1, SATURATED);
+        int head = 0, tail = 0;
+        queue[tail++] = v;
+        while (head < tail) {
+            int x = queue[head++];
+            int dx = d[x] & 0xFF;
+            for (int i = offsets[x]; i < offsets[x + 1]; i++) {
+                int y = neighbors[i];
+                int dy = d[y] & 0xFF;
+                if (dy == NONE || dx + 1 < dy) {
+                    d[y] = (byte) Math.min(dx + 1, SATURATED);
+                    queue[tail++] = y;                          // In BFS order each user improves at most once
+                }
+            }
+        }
+    }
+    /**
+     * Builds the index from scratch. The first landmark is the user with most relations, and each next one is the
+     * user with most relations among the ones no landmark reaches, or the farthest one from all the landmarks.
+     */
+    private void build(int[] offsets, int[] neighbors, int n) {
+        long start = System.nanoTime();
+        int[] minDist = new int[n];
+        Arrays.fill(minDist, Integer.MAX_VALUE);
+        int[] queue = new int[n];
+        int count = Math.min(k, n);
+        int[] chosen = new int[count];
+        byte[][] d = new byte[count][];
+        int used = 0;
+        while (used < count) {
+            int next = -1;
+            for (int u = 0; u < n; u++) {
+                int deg = offsets[u + 1] - offsets[u];
+                if (deg == 0) continue;
+                if (next == -1 || minDist[u] > minDist[next]
+                        || (minDist[u] == minDist[next] && deg > offsets[next + 1] - offsets[next])) next = u;
+            }
+            if (next == -1 || minDist[next] == 0) break;    // Every user with relations is a landmark
+            byte[] dl = new byte[n];
+            Arrays.fill(dl, (byte) NONE);
+            dl[next] = 0;
+            int head = 0, tail = 0;
+            queue[tail++] = next;
+            while (head < tail) {
+                int x = queue[head++];
+                int dx = dl[x] & 0xFF;
+                for (int i = offsets[x]; i < offsets[x + 1]; i++) {
+                    int y = neighbors[i];
+                    if ((dl[y] & 0xFF) == NONE) {
+                        dl[y] = (byte) Math.min(dx + 1, SATURATED);
+                        queue[tail++] = y;
+                    }
+                }
+            }
+            for (int u = 0; u < n; u++) {
+                if ((dl[u] & 0xFF) != NONE) minDist[u] = Math.min(minDist[u], dl[u] & 0xFF);
+            }
+            chosen[used] = next;
+            d[used++] = dl;
+        }
+        landmarks = Arrays.copyOf(chosen, used);
+        dist = Arrays.copyOf(d, used);
+        users = n;
+        built = true;
+        stale = false;
+        pendingSize = 0;
+        buildNanos = System.nanoTime() - start;
+    }
+    /**
+     * Checks if the index has been built, so queries do not have to pay for building it.
+     * @return true iif the index has been built.
+     */
+    public synchronized boolean isBuilt() {
+        return built;
+    }
+    /**
+     * Getter of the number of landmarks.
+     * @return Number of landmarks, 0 if the index is not built.
+     */
+    public synchronized int landmarkCount() {
+        return landmarks.length;
+    }
+    /**
+     * Getter of the time of the last full build.
+     * @return Nanoseconds spent in the last full build.
+     */
+    public synchronized long buildNanos() {
+        return buildNanos;
+    }
+    /**
+     * Estimates the heap used by the index.
+     * @return Approximate size in bytes of the distance arrays and the pending relations.
+     */
+    public synchronized long memoryBytes() {
+        long bytes = 4L * landmarks.length + 8L * pending.length;
+        for (byte[] d : dist) bytes += d.length + 16;
+        return bytes;
+    }
+
+}
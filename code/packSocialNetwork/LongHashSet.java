@@ -0,0 +1,126 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+
+/**
+ * LongHashSet is a set of primitive long values implemented with open addressing and linear probing, so adding
+ * and checking a value does not allocate any object.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class LongHashSet {
+
+    // Attributes
+    private static final long EMPTY = Long.MIN_VALUE;
+    private long[] table;
+    private int size;
+    private boolean containsEmpty;
+
+    // Constructors
+    /**
+     * Creates an empty set.
+     */
+    public LongHashSet() {
+        this(16);
+    }
+    /**
+     * Creates an empty set that can hold the expected number of values without resizing.
+     * @param expected Expected number of values.
+     */
+    public LongHashSet(int expected) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < expected) capacity <<= 1;
+        this.table = newTable(capacity);
+        this.size = 0;
+    }
+
+    // Methods
+    /**
+     * Adds a value to the set.
+     * @param value Value to be added.
+     * @return true if the value was not in the set; otherwise false.
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) return false;
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        if (++size > table.length * 3 / 4) resize();
+        return true;
+    }
+    /**
+     * Checks if a value is in the set.
+     * @param value Value to be checked.
+     * @return true iif the value is in the set; otherwise false.
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) return containsEmpty;
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+    /**
+     * Getter of the number of values.
+     * @return Number of values in the set.
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     * Estimates the heap used by the set.
+     * @return Approximate size in bytes of the table.
+     */
+    public long memoryBytes() {
+        return 8L * table.length + 16;
+    }
+    /**
+     * Doubles the table and inserts again all the values.
+     */
+    private void resize() {
+        long[] old = table;
+        table = newTable(old.length * 2);
+        int mask = table.length - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int i = mix(value) & mask;
+                while (table[i] != EMPTY) i = (i + 1) & mask;
+                table[i] = value;
+            }
+        }
+    }
+    /**
+     * Creates a table filled with the empty marker.
+     * @param capacity Capacity of the table, a power of two.
+     * @return The new table.
+     */
+    private static long[] newTable(int capacity) {
+        long[] t = new long[capacity];
+        Arrays.fill(t, EMPTY);
+        return t;
+    }
+    /**
+     * Spreads the bits of the value so consecutive keys do not fall on consecutive slots.
+     * @param value Value to be hashed.
+     * @return Hash of the value.
+     */
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -0,0 +1,481 @@
+package packSocialNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * LongestChainSearch finds the longest chain of relations (simple path) between two users.
+ * Every chain between them goes through the same biconnected components (blocks) and the same cut users, in the
+ * order given by the block-cut tree, so the search is split in one independent problem per block: the longest chain
+ * inside the block between the user where the chain enters it and the user where it leaves it. Each block is
+ * searched with a depth-first search over int indexes and a bitset of the users on the chain, pruned with the number
+ * of users still reachable, and with the branches of its first user split across a fork-join pool.
+ * Among chains of the same length the one found first by the old exhaustive search (following the relations of each
+ * user in order) is kept, and the search can be given a time budget: when it runs out the longest chain found so
+ * far is returned (at worst a shortest chain, that is used as the starting point).
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class LongestChainSearch {
+
+    // Attributes
+    private static final int CHECK_INTERVAL = 4096;         // Steps between checks of the time budget
+    private static final int SMALL_BLOCK = 4096;            // Blocks where every step is bounded
+    private static final int BOUND_RATIO = 16;              // In bigger blocks bounds take up to 16 times the steps
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int n;
+    private final long deadline;
+    private volatile boolean timedOut;
+
+    /**
+     * Result of a search.
+     */
+    public static class Result {
+        private final int[] chain;
+        private final boolean complete;
+
+        private Result(int[] chain, boolean complete) {
+            this.chain = chain;
+            this.complete = complete;
+        }
+        /**
+         * Getter of the chain.
+         * @return Indexes of the users of the chain from source to target.
+         */
+        public int[] getChain() {
+            return chain;
+        }
+        /**
+         * Checks if the search finished before the time budget ran out.
+         * @return true iif the chain is the longest one; false if it is only the longest one found in time.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    // Constructors
+    private LongestChainSearch(int[] offsets, int[] neighbors, int n, long budgetNanos) {
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.n = n;
+        this.deadline = budgetNanos > 0 ? System.nanoTime() + budgetNanos : Long.MAX_VALUE;
+    }
+
+    // Methods
+    /**
+     * Obtains the longest chain of relations between two users.
+     * @param offsets CSR offsets of the graph.
+     * @param neighbors CSR neighbors of the graph.
+     * @param n Number of users of the graph.
+     * @param source Index of the initial user.
+     * @param target Index of the final user.
+     * @param budgetNanos Maximum time of the search in nanoseconds, 0 or less for no limit.
+     * @return The chain, or null if there is no chain between the users.
+     */
+    public static Result find(int[] offsets, int[] neighbors, int n, int source, int target, long budgetNanos) {
+        if (source == target) return new Result(new int[]{source}, true);
+        return new LongestChainSearch(offsets, neighbors, n, budgetNanos).search(source, target);
+    }
+    /**
+     * Splits the search in blocks and joins the longest chain of each one.
+     */
+    private Result search(int source, int target) {
+        if (offsets[source + 1] == offsets[source] || offsets[target + 1] == offsets[target]) return null;
+        ArrayList<int[]> blocks = blocks(source);
+        int[] segments = blockPath(blocks, source, target);
+        if (segments == null) return null;
+        int[] stamp = new int[n];
+        int[] local = new int[n];
+        int[] chain = new int[]{source};
+        for (int i = 0; i + 2 < segments.length; i += 2) {
+            int[] part = new Block(blocks.get(segments[i + 1]), i + 1, stamp, local).longestChain(segments[i], segments[i + 2]);
+            int len = chain.length;
+            chain = Arrays.copyOf(chain, len + part.length - 1);
+            System.arraycopy(part, 1, chain, len, part.length - 1);
+        }
+        return new Result(chain, !timedOut);
+    }
+    /**
+     * Obtains the biconnected components of the connected component of a user, with an iterative version of the
+     * Hopcroft-Tarjan algorithm.
+     * @return Users of each block.
+     */
+    private ArrayList<int[]> blocks(int root) {
+        ArrayList<int[]> res = new ArrayList<int[]>();
+        int[] disc = new int[n];                            // Discovery time + 1, 0 if not visited
+        int[] low = new int[n];
+        int[] parent = new int[n];
+        int[] next = new int[n];                            // Next relation to follow of each user on the DFS stack
+        int[] dfs = new int[n];
+        int[] visited = new int[n];                         // Users not yet assigned to a block below their parent
+        int top = 0, vtop = 0, time = 0;
+        disc[root] = low[root] = ++time;
+        parent[root] = -1;
+        next[root] = offsets[root];
+        dfs[top++] = root;
+        visited[vtop++] = root;
+        while (top > 0) {
+            int u = dfs[top - 1];
+            if (next[u] < offsets[u + 1]) {
+                int v = neighbors[next[u]++];
+                if (disc[v] == 0) {
+                    disc[v] = low[v] = ++time;
+                    parent[v] = u;
+                    next[v] = offsets[v];
+                    dfs[top++] = v;
+                    visited[vtop++] = v;
+                }
+                else if (v != parent[u]) {
+                    low[u] = Math.min(low[u], disc[v]);
+                }
+            }
+            else {
+                top--;
+                int p = parent[u];
+                if (p != -1) {
+                    low[p] = Math.min(low[p], low[u]);
+                    if (low[u] >= disc[p]) {                // p separates the subtree of u: it closes a block
+                        int size = 0;
+                        while (visited[vtop - 1 - size] != u) size++;
+                        int[] block = new int[size + 2];
+                        System.arraycopy(visited, vtop - size - 1, block, 0, size + 1);
+                        block[size + 1] = p;
+                        vtop -= size + 1;
+                        res.add(block);
+                    }
+                }
+            }
+        }
+        return res;
+    }
+    /**
+     * Finds the path from source to target in the block-cut tree.
+     * @return source, block, cut user, block, ..., block, target; or null if target is not in the component.
+     */
+    private int[] blockPath(ArrayList<int[]> blocks, int source, int target) {
+        int[] memberOffsets = new int[n + 1];               // Blocks of each user, in CSR form
+        for (int[] block : blocks) {
+            for (int v : block) memberOffsets[v + 1]++;
+        }
+        for (int v = 0; v < n; v++) memberOffsets[v + 1] += memberOffsets[v];
+        int[] members = new int[memberOffsets[n]];
+        int[] fill = Arrays.copyOf(memberOffsets, n);
+        for (int b = 0; b < blocks.size(); b++) {
+            for (int v : blocks.get(b)) members[fill[v]++] = b;
+        }
+        if (memberOffsets[target + 1] == memberOffsets[target]) return null;
+        int nodes = n + blocks.size();                      // Users are nodes 0..n-1 and blocks are n..n+blocks-1
+        int[] previous = new int[nodes];
+        Arrays.fill(previous, -2);
+        int[] queue = new int[nodes];
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        previous[source] = -1;
+        while (head < tail && previous[target] == -2) {
+            int x = queue[head++];
+            if (x < n) {
+                for (int i = memberOffsets[x]; i < memberOffsets[x + 1]; i++) {
+                    int b = n + members[i];
+                    if (previous[b] == -2) {
+                        previous[b] = x;
+                        queue[tail++] = b;
+                    }
+                }
+            }
+            else {
+                for (int v : blocks.get(x - n)) {
+                    boolean cut = memberOffsets[v + 1] - memberOffsets[v] > 1;
+                    if (previous[v] == -2 && (cut || v == target)) {
+                        previous[v] = x;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+        }
+        if (previous[target] == -2) return null;
+        int len = 0;
+        for (int x = target; x != -1; x = previous[x]) len++;
+        int[] res = new int[len];
+        for (int x = target; x != -1; x = previous[x]) {
+            res[--len] = x < n ? x : x - n;
+        }
+        return res;
+    }
+    /**
+     * Checks the time budget.
+     */
+    private boolean outOfTime() {
+        if (!timedOut && System.nanoTime() > deadline) timedOut = true;
+        return timedOut;
+    }
+
+    /**
+     * Search of the longest chain inside one block, over local indexes 0..m-1.
+     */
+    private class Block {
+        private final int[] users;                          // Global index of each local user
+        private final int m;
+        private final int[] off;
+        private final int[] adj;
+        private final ThreadLocal<Scratch> scratch;
+        private volatile int bestLength;
+        private int[] best;                                 // Local users of the best chain
+        private int[] bestPositions;                        // Relation followed from each user of the best chain
+
+        private Block(int[] users, int mark, int[] stamp, int[] local) {
+            this.users = users.clone();
+            this.m = users.length;
+            Arrays.sort(this.users);                        // To find the local index of the entry and the exit
+            for (int i = 0; i < m; i++) {
+                stamp[this.users[i]] = mark;
+                local[this.users[i]] = i;
+            }
+            this.off = new int[m + 1];
+            for (int i = 0; i < m; i++) {
+                int u = this.users[i];
+                int d = 0;
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    if (stamp[neighbors[k]] == mark) d++;
+                }
+                off[i + 1] = off[i] + d;
+            }
+            this.adj = new int[off[m]];
+            for (int i = 0; i < m; i++) {
+                int u = this.users[i];
+                int pos = off[i];
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    if (stamp[neighbors[k]] == mark) adj[pos++] = local[neighbors[k]];
+                }
+            }
+            this.scratch = ThreadLocal.withInitial(Scratch::new);
+        }
+        /**
+         * Obtains the longest chain inside the block.
+         * @return Global indexes of the users of the chain from entry to exit.
+         */
+        private int[] longestChain(int entry, int exit) {
+            int a = Arrays.binarySearch(users, entry);
+            int b = Arrays.binarySearch(users, exit);
+            seed(a, b);
+            if (m > 2) {
+                ArrayList<Branch> branches = new ArrayList<Branch>();
+                for (int k = off[a]; k < off[a + 1]; k++) {
+                    branches.add(new Branch(a, b, k));
+                }
+                ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                    @Override protected void compute() {
+                        invokeAll(branches);
+                    }
+                });
+            }
+            int[] res = new int[best.length];
+            for (int i = 0; i < res.length; i++) res[i] = users[best[i]];
+            return res;
+        }
+        /**
+         * Starts with a shortest chain, so there is an answer even if the time budget runs out.
+         */
+        private void seed(int a, int b) {
+            int[] previous = new int[m];
+            Arrays.fill(previous, -1);
+            int[] queue = new int[m];
+            int head = 0, tail = 0;
+            queue[tail++] = a;
+            previous[a] = a;
+            while (head < tail && previous[b] == -1) {
+                int x = queue[head++];
+                for (int k = off[x]; k < off[x + 1]; k++) {
+                    if (previous[adj[k]] == -1) {
+                        previous[adj[k]] = x;
+                        queue[tail++] = adj[k];
+                    }
+                }
+            }
+            int len = 1;
+            for (int x = b; x != a; x = previous[x]) len++;
+            int[] chain = new int[len];
+            int[] positions = new int[len - 1];
+            for (int x = b; ; x = previous[x]) {
+                chain[--len] = x;
+                if (x == a) break;
+            }
+            for (int i = 0; i + 1 < chain.length; i++) {
+                int k = off[chain[i]];
+                while (adj[k] != chain[i + 1]) k++;
+                positions[i] = k;
+            }
+            best = chain;
+            bestPositions = positions;
+            bestLength = chain.length;
+        }
+        /**
+         * Keeps a chain if it is longer than the best one, or as long and first in the order of the old search.
+         */
+        private synchronized void offer(int[] path, int[] positions, int len) {
+            if (len < best.length) return;
+            if (len == best.length && Arrays.compare(positions, 0, len - 1, bestPositions, 0, len - 1) >= 0) return;
+            best = Arrays.copyOf(path, len);
+            bestPositions = Arrays.copyOf(positions, len - 1);
+            bestLength = len;
+        }
+        /**
+         * Bounds the users that the chain can still add after u. The rest of the chain goes from u to target through
+         * the users that are not on the chain, so it can only use the blocks of the path from u to target in their
+         * block-cut tree. They are found with a depth-first search from target: every block closed while u (or the
+         * cut user where the previous block on the path was left) is still on the stack is on that path.
+         * @return Upper bound of the users that the chain can still add, or -1 if target is not reachable.
+         */
+        private int bound(Scratch s, int u, int target) {
+            if (++s.epoch == Integer.MAX_VALUE) {
+                Arrays.fill(s.stamp, 0);
+                s.epoch = 1;
+            }
+            int[] disc = s.disc, low = s.low, parent = s.parent, next = s.iter, dfs = s.queue, visited = s.visited;
+            int top = 0, vtop = 0, time = 0;
+            int marker = u;
+            int res = 0;
+            s.stamp[target] = s.epoch;
+            disc[target] = low[target] = ++time;
+            parent[target] = -1;
+            next[target] = off[target];
+            dfs[top++] = target;
+            visited[vtop++] = target;
+            while (top > 0) {
+                int x = dfs[top - 1];
+                if (next[x] < off[x + 1]) {
+                    int y = adj[next[x]++];
+                    if (s.stamp[y] != s.epoch) {
+                        if (y != u && (s.onPath[y >>> 6] & (1L << y)) != 0) continue;
+                        s.stamp[y] = s.epoch;
+                        disc[y] = low[y] = ++time;
+                        parent[y] = x;
+                        next[y] = off[y];
+                        dfs[top++] = y;
+                        visited[vtop++] = y;
+                    }
+                    else if (y != parent[x]) {
+                        low[x] = Math.min(low[x], disc[y]);
+                    }
+                }
+                else {
+                    top--;
+                    int p = parent[x];
+                    if (p != -1) {
+                        low[p] = Math.min(low[p], low[x]);
+                        if (low[x] >= disc[p]) {            // Block of the popped users and p
+                            int size = 0;
+                            boolean onWay = false;
+                            do {
+                                onWay |= visited[--vtop] == marker;
+                                size++;
+                            } while (visited[vtop] != x);
+                            if (onWay) {
+                                res += size;
+                                marker = p;
+                            }
+                        }
+                    }
+                }
+            }
+            return s.stamp[u] == s.epoch ? res : -1;
+        }
+        /**
+         * Per-thread arrays of the depth-first search.
+         */
+        private class Scratch {
+            private final int[] path = new int[m];
+            private final int[] positions = new int[m];
+            private final int[] next = new int[m];
+            private final long[] onPath = new long[(m + 63) >>> 6];
+            private final int[] stamp = new int[m];
+            private final int[] queue = new int[m];
+            private final int[] disc = new int[m];
+            private final int[] low = new int[m];
+            private final int[] parent = new int[m];
+            private final int[] iter = new int[m];
+            private final int[] visited = new int[m];
+            private int epoch;
+            private int steps;
+            private long credit;                            // Work allowed to bounds in big blocks
+        }
+
+        /**
+         * Depth-first search of the chains that start with one relation of the entry user.
+         */
+        private class Branch extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final int a;
+            private final int b;
+            private final int first;
+
+            private Branch(int a, int b, int first) {
+                this.a = a;
+                this.b = b;
+                this.first = first;
+            }
+
+            @Override protected void compute() {
+                if (timedOut) return;
+                Scratch s = scratch.get();
+                int[] path = s.path;
+                int[] positions = s.positions;
+                int[] next = s.next;
+                long[] onPath = s.onPath;
+                path[0] = a;
+                positions[0] = first;
+                onPath[a >>> 6] |= 1L << a;
+                int d = 1;                                  // Users on the chain
+                path[1] = adj[first];
+                next[1] = -1;
+                onPath[path[1] >>> 6] |= 1L << path[1];
+                while (d > 0) {
+                    int u = path[d];
+                    boolean pop;
+                    s.credit += BOUND_RATIO;
+                    if (++s.steps == CHECK_INTERVAL) {
+                        s.steps = 0;
+                        if (outOfTime()) break;
+                    }
+                    if (u == b) {
+                        offer(path, positions, d + 1);
+                        pop = true;
+                    }
+                    else if (next[d] == -1) {               // First visit: prune with the users it can still add
+                        next[d] = off[u];
+                        pop = false;
+                        if (m <= SMALL_BLOCK || s.credit >= off[m]) {
+                            if (outOfTime()) break;         // Bounds walk the whole block, check the time before
+                            s.credit = 0;
+                            int r = bound(s, u, b);
+                            pop = r < 0 || d + 1 + r < bestLength;
+                        }
+                    }
+                    else {
+                        pop = false;
+                    }
+                    if (!pop) {
+                        while (next[d] < off[u + 1] && (onPath[adj[next[d]] >>> 6] & (1L << adj[next[d]])) != 0) next[d]++;
+                        if (next[d] < off[u + 1]) {
+                            int v = adj[next[d]];
+                            positions[d] = next[d]++;
+                            path[++d] = v;
+                            next[d] = -1;
+                            onPath[v >>> 6] |= 1L << v;
+                            continue;
+                        }
+                    }
+                    onPath[u >>> 6] &= ~(1L << u);
+                    d--;
+                }
+                for (int i = 0; i <= d; i++) onPath[path[i] >>> 6] &= ~(1L << path[i]);
+            }
+        }
+    }
+
+}
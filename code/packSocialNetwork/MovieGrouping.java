@@ -0,0 +1,167 @@
+package packSocialNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * MovieGrouping groups people by their collection of favourite movies ignoring case, in linear time. It scans the
+ * movies column of a PersonColumns: every distinct title code is case-folded once (the same way
+ * String.equalsIgnoreCase compares chars) and given an int ID, and every collection becomes a fingerprint: the sorted
+ * array of the IDs of its titles with its hash precomputed, so collections are grouped in a hash table instead of
+ * being compared with each other. Big inputs are split in ranges grouped in parallel on the common fork-join pool,
+ * and merged keeping the order in which each collection first appears.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class MovieGrouping {
+
+    // Attributes
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+    private final int[] offsets;                            // Movies column of the PersonColumns
+    private final int[] codes;
+    private final int[] ids;                                // ID of the folded title of each code
+
+    /**
+     * Fingerprint of a collection: sorted IDs of its case-folded titles.
+     */
+    private static class Fingerprint {
+        private final int[] movies;
+        private final int hash;
+
+        private Fingerprint(int[] movies) {
+            this.movies = movies;
+            this.hash = Arrays.hashCode(movies);
+        }
+        @Override public boolean equals(Object o) {
+            return o instanceof Fingerprint && hash == ((Fingerprint) o).hash && Arrays.equals(movies, ((Fingerprint) o).movies);
+        }
+        @Override public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Distinct collections and the people that have each one.
+     */
+    public static class Result {
+        private final ArrayList<String[]> collections;
+        private final ArrayList<IntList> members;
+
+        private Result(ArrayList<String[]> collections, ArrayList<IntList> members) {
+            this.collections = collections;
+            this.members = members;
+        }
+        /**
+         * Getter of the distinct collections, as they appear in the first person that has each one.
+         * @return Collections in the order they first appear.
+         */
+        public ArrayList<String[]> getCollections() {
+            return collections;
+        }
+        /**
+         * Getter of the people of each collection.
+         * @return Posting list of each collection, in the same order as getCollections().
+         */
+        public ArrayList<IntList> getMembers() {
+            return members;
+        }
+    }
+
+    // Constructors
+    private MovieGrouping(PersonColumns people) {
+        this.offsets = people.offsets(PersonColumns.MOVIES);
+        this.codes = people.values(PersonColumns.MOVIES);
+        int values = offsets[people.size()];
+        int maxCode = -1;
+        for (int i = 0; i < values; i++) maxCode = Math.max(maxCode, codes[i]);
+        this.ids = new int[maxCode + 1];
+        Arrays.fill(ids, -1);
+        HashMap<String, Integer> folded = new HashMap<String, Integer>();
+        StringDictionary dictionary = StringDictionary.global();
+        for (int i = 0; i < values; i++) {                  // Each distinct code is folded only once
+            int c = codes[i];
+            if (ids[c] == -1) {
+                Integer id = folded.putIfAbsent(InvertedIndex.fold(dictionary.decode(c)), folded.size());
+                ids[c] = id == null ? folded.size() - 1 : id;
+            }
+        }
+    }
+
+    // Methods
+    /**
+     * Groups people by their collection of favourite movies ignoring case.
+     * @param people The people, the row being the index of the person.
+     * @return The distinct collections and their people.
+     */
+    public static Result group(PersonColumns people) {
+        MovieGrouping g = new MovieGrouping(people);
+        LinkedHashMap<Fingerprint, IntList> groups = new GroupTask(g, 0, people.size()).invoke();
+        ArrayList<String[]> collections = new ArrayList<String[]>(groups.size());
+        ArrayList<IntList> members = new ArrayList<IntList>(groups.size());
+        for (IntList list : groups.values()) {
+            collections.add(StringDictionary.global().decode(people.getList(PersonColumns.MOVIES, list.get(0))));
+            members.add(list);
+        }
+        return new Result(collections, members);
+    }
+    /**
+     * Obtains the fingerprint of the collection of a person.
+     */
+    private Fingerprint fingerprint(int row) {
+        int from = offsets[row];
+        int[] key = new int[offsets[row + 1] - from];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = ids[codes[from + i]];
+        }
+        Arrays.sort(key);
+        return new Fingerprint(key);
+    }
+
+    /**
+     * Groups a range of people, splitting it in halves and merging the halves in order.
+     */
+    private static class GroupTask extends RecursiveTask<LinkedHashMap<Fingerprint, IntList>> {
+        private static final long serialVersionUID = 1L;
+        private final MovieGrouping g;
+        private final int from;
+        private final int to;
+
+        private GroupTask(MovieGrouping g, int from, int to) {
+            this.g = g;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected LinkedHashMap<Fingerprint, IntList> compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                LinkedHashMap<Fingerprint, IntList> res = new LinkedHashMap<Fingerprint, IntList>();
+                for (int i = from; i < to; i++) {
+                    res.computeIfAbsent(g.fingerprint(i), f -> new IntList()).add(i);
+                }
+                return res;
+            }
+            int mid = (from + to) >>> 1;
+            GroupTask right = new GroupTask(g, mid, to);
+            right.fork();
+            LinkedHashMap<Fingerprint, IntList> res = new GroupTask(g, from, mid).compute();
+            for (Map.Entry<Fingerprint, IntList> e : right.join().entrySet()) {
+                IntList list = res.get(e.getKey());
+                if (list == null) {
+                    res.put(e.getKey(), e.getValue());      // First appears in the right half
+                }
+                else {
+                    IntList more = e.getValue();
+                    for (int i = 0; i < more.size(); i++) list.add(more.get(i));
+                }
+            }
+            return res;
+        }
+    }
+
+}
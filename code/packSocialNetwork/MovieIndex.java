@@ -0,0 +1,164 @@
+package packSocialNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MovieIndex indexes the favourite movies of the people of the Social Network. Every title gets an int ID, and the
+ * index keeps two kinds of posting lists (person indexes in the order they were added):
+ *   - per collection: the people whose favourite movies are that collection ignoring case, the key being the
+ *     sorted tuple of the IDs of the case-folded titles, so the collections are the groups of MovieGrouping.
+ *   - per movie: the people that have that movie among their favourites, the title compared exactly.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class MovieIndex {
+
+    // Attributes
+    private static final IntList NONE = new IntList();
+    private final HashMap<String, Integer> ids;
+    private final HashMap<String, Integer> foldedIds;       // ID of each case-folded title, for the collections
+    private final ArrayList<String> titles;
+    private final ArrayList<IntList> byMovie;
+    private final HashMap<MovieCollection, IntList> byCollection;
+
+    /**
+     * Key of a collection of favourite movies: the sorted IDs of its case-folded titles.
+     */
+    private static class MovieCollection {
+        private final int[] movies;
+        private final int hash;
+
+        private MovieCollection(int[] movies) {
+            this.movies = movies;
+            this.hash = Arrays.hashCode(movies);
+        }
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MovieCollection)) return false;
+            return Arrays.equals(movies, ((MovieCollection) o).movies);
+        }
+        @Override public int hashCode() {
+            return hash;
+        }
+    }
+
+    // Constructors
+    /**
+     * Creates an empty index.
+     */
+    public MovieIndex() {
+        this.ids = new HashMap<String, Integer>();
+        this.foldedIds = new HashMap<String, Integer>();
+        this.titles = new ArrayList<String>();
+        this.byMovie = new ArrayList<IntList>();
+        this.byCollection = new HashMap<MovieCollection, IntList>();
+    }
+
+    // Methods
+    /**
+     * Adds a person to the index.
+     * @param movies Favourite movies of the person.
+     * @param index Index of the person in the Social Network.
+     */
+    public void add(String[] movies, int index) {
+        String[] sorted = canonical(movies);
+        int[] key = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Integer id = ids.get(sorted[i]);
+            if (id == null) {
+                id = titles.size();
+                ids.put(sorted[i], id);
+                titles.add(sorted[i]);
+                byMovie.add(new IntList());
+            }
+            IntList list = byMovie.get(id);
+            if (list.isEmpty() || list.get(list.size() - 1) != index) list.add(index);  // Repeated titles once
+            String folded = InvertedIndex.fold(sorted[i]);
+            Integer f = foldedIds.get(folded);
+            if (f == null) {
+                f = foldedIds.size();
+                foldedIds.put(folded, f);
+            }
+            key[i] = f;
+        }
+        Arrays.sort(key);
+        MovieCollection c = new MovieCollection(key);
+        IntList list = byCollection.get(c);
+        if (list == null) {
+            list = new IntList();
+            byCollection.put(c, list);
+        }
+        list.add(index);
+    }
+    /**
+     * Obtains the people whose favourite movies are the given ones, ignoring case.
+     * @param movies Favourite movies, in any order.
+     * @return Posting list with the indexes of the people, empty if there are none. It must not be modified.
+     */
+    public IntList byCollection(String[] movies) {
+        String[] sorted = canonical(movies);
+        int[] key = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Integer id = foldedIds.get(InvertedIndex.fold(sorted[i]));
+            if (id == null) return NONE;                    // No one has that movie
+            key[i] = id;
+        }
+        Arrays.sort(key);
+        IntList list = byCollection.get(new MovieCollection(key));
+        return list == null ? NONE : list;
+    }
+    /**
+     * Obtains the people that have a movie among their favourites.
+     * @param title Title of the movie.
+     * @return Posting list with the indexes of the people, empty if there are none. It must not be modified.
+     */
+    public IntList byMovie(String title) {
+        Integer id = ids.get(title);
+        return id == null ? NONE : byMovie.get(id);
+    }
+    /**
+     * Getter of the number of different movies.
+     * @return Number of movies.
+     */
+    public int movieCount() {
+        return titles.size();
+    }
+    /**
+     * Getter of the number of different collections of favourite movies.
+     * @return Number of collections.
+     */
+    public int collectionCount() {
+        return byCollection.size();
+    }
+    /**
+     * Estimates the heap used by the index, without the titles, that are shared with the people.
+     * @return Approximate size in bytes of the hash tables, the keys and the posting lists.
+     */
+    public long memoryBytes() {
+        long bytes = 4 * 48 + 8L * ids.size() * 2 + 4L * titles.size();
+        bytes += (32 + 16) * (long) ids.size();            // Node and Integer of each title
+        bytes += 48 + 8L * foldedIds.size() * 2;
+        for (String folded : foldedIds.keySet()) bytes += 32 + 16 + StringDictionary.stringBytes(folded);
+        for (IntList list : byMovie) bytes += list.memoryBytes();
+        for (Map.Entry<MovieCollection, IntList> e : byCollection.entrySet()) {
+            bytes += 32 + 8 + 32 + 16 + 4L * e.getKey().movies.length;
+            bytes += e.getValue().memoryBytes();
+        }
+        return bytes;
+    }
+    /**
+     * Gives the titles of a list of favourite movies sorted, as they are compared in the collections: joined and
+     * split again by ';', so empty titles at the end are not taken into account.
+     */
+    private static String[] canonical(String[] movies) {
+        String[] sorted = String.join(";", movies).split(";");
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+}
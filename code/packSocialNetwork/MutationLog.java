@@ -0,0 +1,350 @@
+package packSocialNetwork;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * MutationLog is an append-only binary log (write-ahead log) of the changes of the Social Network: people and
+ * relations added one by one, and people files, relations files and snapshots loaded in the menu. When the menu
+ * starts with a log set, the log is replayed (see SocialNetwork.recover), so nothing added is lost when it ends, and
+ * a snapshot saved is a checkpoint: the log is replaced by one that only loads that snapshot.
+ * Appending a record only copies it into a buffer. A daemon thread writes the buffer and forces it to the disk
+ * (group commit) every interval milliseconds, or as soon as the buffer has the group size; closing the log writes
+ * and forces what is left. So a crash can lose at most the records of the last interval. If a write fails, the
+ * records that were not written stay in the buffer and the flusher tries again later.
+ * Format (big endian): magic and version, then the records: payload length, type, payload and CRC32 of type and
+ * payload, the payload being its strings as UTF-8 bytes preceded by their length. A record cut by a crash fails the
+ * check and is dropped with everything after it.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class MutationLog implements AutoCloseable {
+
+    // Attributes
+    public static final byte PERSON = 1;                    // Arguments: data of the person as a line of a people file
+    public static final byte RELATION = 2;                  // Arguments: identifiers of the two people
+    public static final byte LOAD_PEOPLE = 3;               // Arguments: name of the file in files/
+    public static final byte LOAD_RELATIONS = 4;
+    public static final byte LOAD_SNAPSHOT = 5;
+    private static final int MAGIC = 0x534E574C;            // "SNWL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * 4;
+    private final Path file;
+    private final long intervalMillis;
+    private final int groupBytes;
+    private FileChannel channel;
+    private ByteBuffer buffer;                              // Records appended and not written yet
+    private long written;                                   // Bytes of the log in the file, the buffer goes after
+    private final CRC32 crc;
+    private final Thread flusher;
+    private boolean closed;
+    private long records;
+    private long syncs;
+    private long failures;                                  // Syncs whose write or force failed
+    private long size;                                      // Bytes of the log, written or buffered
+
+    /**
+     * A record read from a log.
+     */
+    public static class Record {
+        private final byte type;
+        private final String[] arguments;
+
+        private Record(byte type, String[] arguments) {
+            this.type = type;
+            this.arguments = arguments;
+        }
+        /**
+         * Getter of the type of the record.
+         * @return PERSON, RELATION, LOAD_PEOPLE, LOAD_RELATIONS or LOAD_SNAPSHOT.
+         */
+        public byte getType() {
+            return type;
+        }
+        /**
+         * Getter of the arguments of the record.
+         * @return The strings of the record.
+         */
+        public String[] getArguments() {
+            return arguments;
+        }
+    }
+
+    // Constructors
+    /**
+     * Opens a log to append records after the valid ones.
+     * @param file The log.
+     * @param valid Number of valid bytes, the rest is a record cut by a crash.
+     * @param intervalMillis Maximum time between a record is appended and it is forced to the disk.
+     * @param groupBytes Bytes appended that are forced without waiting for the interval.
+     */
+    private MutationLog(Path file, long valid, long intervalMillis, int groupBytes) throws IOException {
+        this.file = file;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.groupBytes = Math.max(64, groupBytes);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocate(2 * this.groupBytes);
+        this.crc = new CRC32();
+        this.closed = false;
+        this.records = 0;
+        this.syncs = 0;
+        this.failures = 0;
+        if (valid < HEADER_BYTES) {                         // New log, the header is written with the first sync
+            channel.truncate(0);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            this.written = 0;
+            this.size = HEADER_BYTES;
+        } else {
+            channel.truncate(valid);
+            this.written = valid;
+            this.size = valid;
+        }
+        this.flusher = new Thread(this::flushLoop, "MutationLog flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Methods
+    /**
+     * Reads the valid records of a log.
+     * @param file The log.
+     * @return The records in the order they were appended, empty if the log does not exist or is not a log.
+     * @throws IOException If the log can not be read.
+     */
+    public static ArrayList<Record> read(Path file) throws IOException {
+        ArrayList<Record> found = new ArrayList<Record>();
+        readValid(file, found);
+        return found;
+    }
+    /**
+     * Opens a log, creating it if it does not exist and dropping a record cut by a crash at its end.
+     * @param file The log.
+     * @param intervalMillis Maximum time between a record is appended and it is forced to the disk.
+     * @param groupBytes Bytes appended that are forced without waiting for the interval.
+     * @return The log, ready to append records.
+     * @throws IOException If the log can not be opened.
+     */
+    public static MutationLog open(Path file, long intervalMillis, int groupBytes) throws IOException {
+        MutationLog log = new MutationLog(file, readValid(file, null), intervalMillis, groupBytes);
+        Runtime.getRuntime().addShutdownHook(new Thread(log::close));
+        return log;
+    }
+    /**
+     * Reads the records of a log until the end or the first record that is not valid.
+     * @param file The log.
+     * @param found Where the records are added, or null to only count the bytes.
+     * @return Number of bytes of the header and the valid records, 0 if the file does not exist or is not a log.
+     * @throws IOException If the log can not be read.
+     */
+    private static long readValid(Path file, ArrayList<Record> found) throws IOException {
+        ByteBuffer b;
+        try {
+            b = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        if (b.remaining() < HEADER_BYTES || b.getInt() != MAGIC || b.getInt() != VERSION) return 0;
+        CRC32 check = new CRC32();
+        int end = HEADER_BYTES;
+        while (b.remaining() >= 4 + 1 + 4) {
+            int length = b.getInt();
+            if (length < 0 || length > b.remaining() - 1 - 4) break;
+            check.reset();
+            check.update(b.array(), end + 4, 1 + length);
+            byte type = b.get();
+            b.position(end + 5 + length);
+            if (b.getInt() != (int) check.getValue()) break;
+            if (found != null) {
+                ArrayList<String> arguments = new ArrayList<String>();
+                ByteBuffer payload = ByteBuffer.wrap(b.array(), end + 5, length);
+                while (payload.hasRemaining()) {
+                    int n = payload.getInt();
+                    arguments.add(new String(b.array(), payload.position(), n, StandardCharsets.UTF_8));
+                    payload.position(payload.position() + n);
+                }
+                found.add(new Record(type, arguments.toArray(new String[0])));
+            }
+            end = b.position();
+        }
+        return end;
+    }
+    /**
+     * Appends a record. It is forced to the disk by the group commit (see the class).
+     * @param type PERSON, RELATION, LOAD_PEOPLE, LOAD_RELATIONS or LOAD_SNAPSHOT.
+     * @param arguments The strings of the record.
+     * @throws IllegalStateException If the log is closed.
+     */
+    public synchronized void append(byte type, String... arguments) {
+        if (closed) throw new IllegalStateException("The log is closed");
+        byte[] record = record(type, arguments);
+        if (record.length > buffer.remaining()) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + record.length));
+            buffer.flip();
+            buffer = bigger.put(buffer);
+        }
+        buffer.put(record);
+        records++;
+        size += record.length;
+        if (buffer.position() >= groupBytes) notifyAll();   // Do not wait for the interval
+    }
+    /**
+     * Encodes a record: payload length, type, payload and CRC32 of type and payload.
+     * @param type Type of the record.
+     * @param arguments The strings of the record.
+     * @return The bytes of the record.
+     */
+    private byte[] record(byte type, String[] arguments) {
+        byte[][] bytes = new byte[arguments.length][];
+        int length = 0;
+        for (int i = 0; i < arguments.length; i++) {
+            bytes[i] = arguments[i].getBytes(StandardCharsets.UTF_8);
+            length += 4 + bytes[i].length;
+        }
+        ByteBuffer b = ByteBuffer.allocate(4 + 1 + length + 4);
+        b.putInt(length).put(type);
+        for (byte[] a : bytes) b.putInt(a.length).put(a);
+        crc.reset();
+        crc.update(b.array(), 4, 1 + length);
+        b.putInt((int) crc.getValue());
+        return b.array();
+    }
+    /**
+     * Replaces the log with one that only loads a snapshot, once the snapshot has everything the log had, that is,
+     * the records appended so far. The new log is written and forced aside and then moved over the old one (see
+     * SnapshotFile.moveDurably), so a crash leaves one of them whole. The log is only switched to the new file once
+     * it is in place: if anything fails, the old log goes on as it was, with all its records.
+     * @param snapshot Name of the snapshot file in files/.
+     * @throws IOException If the new log can not be written.
+     */
+    public synchronized void checkpoint(String snapshot) throws IOException {
+        if (closed) throw new IllegalStateException("The log is closed");
+        Path aside = file.resolveSibling(file.getFileName() + ".tmp");
+        byte[] record = record(LOAD_SNAPSHOT, new String[]{snapshot});
+        ByteBuffer fresh = ByteBuffer.allocate(HEADER_BYTES + record.length);
+        fresh.putInt(MAGIC).putInt(VERSION).put(record).flip();
+        FileChannel ch = FileChannel.open(aside, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (fresh.hasRemaining()) ch.write(fresh);
+            ch.force(true);
+            SnapshotFile.moveDurably(aside, file);          // The channel now writes the new log
+        } catch (IOException e) {
+            ch.close();
+            Files.deleteIfExists(aside);
+            throw e;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {                           // The old log is no longer used
+        }
+        channel = ch;
+        buffer.clear();                                     // Its records are in the snapshot
+        written = fresh.limit();
+        size = written;
+        records++;
+        syncs++;
+    }
+    /**
+     * Writes the buffered records and forces them to the disk. The buffer is written holding the lock of the log
+     * and forced without it, so records can be appended meanwhile. The records are written at the end of what is
+     * already in the file, and only the ones written leave the buffer, so a failed sync can be tried again.
+     * @throws UncheckedIOException If the records can not be written or forced.
+     */
+    public void sync() {
+        FileChannel ch;
+        synchronized (this) {
+            if (buffer.position() == 0) return;
+            ch = channel;
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) written += ch.write(buffer, written);
+            } catch (IOException e) {
+                failures++;
+                throw new UncheckedIOException(e);
+            } finally {
+                buffer.compact();                           // Keeps what was not written
+            }
+            syncs++;
+        }
+        try {
+            ch.force(false);
+        } catch (IOException e) {                           // A checkpoint closed the channel, it forced its own log
+            if (ch.isOpen()) {
+                synchronized (this) {
+                    failures++;
+                }
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    /**
+     * Body of the flusher thread: syncs the log every interval, or before if the group size is reached. While the
+     * syncs fail it reports the error once and tries again less and less often, up to once a second.
+     */
+    private void flushLoop() {
+        boolean failing = false;
+        long wait = intervalMillis;
+        while (true) {
+            synchronized (this) {
+                if (closed) return;
+                if (buffer.position() < groupBytes || failing) {
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            try {
+                sync();
+                if (failing) System.err.println("The mutation log is written again");
+                failing = false;
+                wait = intervalMillis;
+            } catch (UncheckedIOException e) {
+                if (!failing) System.err.println("Error: The mutation log couldn't be written, trying again: " + e.getCause().getMessage());
+                failing = true;
+                wait = Math.min(1000, wait * 2);
+            }
+        }
+    }
+    /**
+     * Writes and forces the buffered records and closes the log. Closing it again does nothing.
+     * @throws UncheckedIOException If the last records can not be written; the log is closed anyway.
+     */
+    @Override public void close() {
+        synchronized (this) {
+            if (closed) return;
+        }
+        try {
+            sync();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+                try {
+                    channel.close();
+                } catch (IOException e) {                   // Nothing more is written to it
+                }
+            }
+        }
+    }
+    /**
+     * Gives the statistics of the log.
+     * @return Records appended since it was opened, syncs done and failed and size of the log.
+     */
+    public synchronized String statistics() {
+        return "Mutation log: " + records + " records appended, " + syncs + " syncs, " + failures + " failed, " + size
+                + " bytes, synced every " + intervalMillis + " ms or " + groupBytes + " bytes";
+    }
+
+}
@@ -0,0 +1,160 @@
+package packSocialNetwork;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NetworkVersion is an immutable version of the people and the relations of the Social Network, published after
+ * each write (a person or a relation added, or a whole file or snapshot loaded), so the long queries read a stable
+ * network without holding the lock of the Social Network while writers go on.
+ * The stores are not copied to publish a version, so publishing costs constant time: they only append, so a version
+ * keeps the arrays of the stores as they are when it is published (the CSR arrays and the delta buffer of the
+ * relations, the columns of the people, the Person array and the tables of the identifiers) and only reads its
+ * first users rows and the relations it has. The arrays that grow are replaced by new ones, and the relations not
+ * yet compacted are compacted by the first reader (see the freeze() methods of the stores), so what a version
+ * reads is never changed. The identifier tables are shared too, so they may have identifiers added after the
+ * version: indexOf ignores the indexes from users on and checks the identifier of the person found.
+ * A reader pins the current version and closes it when it ends; an old version is reclaimed by the garbage collector
+ * once it is no longer the current one and no reader holds it.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class NetworkVersion implements AutoCloseable {
+
+    // Attributes
+    private final long number;
+    private final int users;
+    private final Person[] people;                          // Only the identifiers are read, the rows are in columns
+    private final IdentifierMap identifiers;
+    private final PersonColumns columns;
+    private final AdjacencyGraph relations;
+    private final AtomicInteger readers;
+
+    // Constructors
+    /**
+     * Creates a version of the network.
+     * @param number Number of the version, one more than the previous one.
+     * @param users Number of users.
+     * @param people Person of each index, the first users are read.
+     * @param identifiers Frozen map of the identifiers (see IdentifierMap.freeze).
+     * @param columns Frozen columns of the people (see PersonColumns.freeze).
+     * @param relations Frozen graph of the relations (see AdjacencyGraph.freeze).
+     */
+    NetworkVersion(long number, int users, Person[] people, IdentifierMap identifiers, PersonColumns columns, AdjacencyGraph relations) {
+        this.number = number;
+        this.users = users;
+        this.people = people;
+        this.identifiers = identifiers;
+        this.columns = columns;
+        this.relations = relations;
+        this.readers = new AtomicInteger();
+    }
+
+    // Methods
+    /**
+     * Registers a reader of this version.
+     * @return This version, to be closed by the reader when it ends.
+     */
+    NetworkVersion pin() {
+        readers.incrementAndGet();
+        return this;
+    }
+    /**
+     * Unregisters a reader of this version.
+     */
+    @Override public void close() {
+        readers.decrementAndGet();
+    }
+    /**
+     * Getter of the number of the version.
+     * @return Number of the version, the first one is 1.
+     */
+    public long getNumber() {
+        return number;
+    }
+    /**
+     * Getter of the number of users.
+     * @return Number of users of this version.
+     */
+    public int getUsers() {
+        return users;
+    }
+    /**
+     * Getter of the number of relations.
+     * @return Number of relations of this version.
+     */
+    public int getRelations() {
+        return relations.edgeCount();
+    }
+    /**
+     * Getter of the readers that hold this version.
+     * @return Number of readers.
+     */
+    public int getReaders() {
+        return readers.get();
+    }
+    /**
+     * Obtains the index of the person with an identifier.
+     * @param identifier The identifier.
+     * @return Its index, or IdentifierMap.NOT_FOUND if no one has it in this version.
+     */
+    public int indexOf(String identifier) {
+        int i = identifiers.get(identifier);
+        return i != IdentifierMap.NOT_FOUND && i < users && people[i].getIdentifier().equals(identifier) ? i : IdentifierMap.NOT_FOUND;
+    }
+    /**
+     * Obtains the identifier of a person of this version, without creating a view of it.
+     * @param index Index of the person, less than getUsers().
+     * @return Its identifier.
+     */
+    public String identifier(int index) {
+        return people[index].getIdentifier();
+    }
+    /**
+     * Obtains a person of this version.
+     * @param index Index of the person, less than getUsers().
+     * @return A Person that reads the attributes of this version.
+     */
+    public Person person(int index) {
+        return columns.view(people[index].getIdentifier(), index);
+    }
+    /**
+     * Obtains the people born in a city.
+     * @param city Dictionary code of the city (see StringDictionary).
+     * @return Their indexes in increasing order.
+     */
+    public int[] bornIn(int city) {
+        long[] bitmap = ColumnFilters.equal(columns.column(PersonColumns.BIRTHPLACE), users, city);
+        int[] found = new int[ColumnFilters.count(bitmap)];
+        int k = 0;
+        for (int w = 0; w < bitmap.length; w++) {
+            for (long bits = bitmap[w]; bits != 0; bits &= bits - 1) {
+                found[k++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return found;
+    }
+    /**
+     * Gives access to the columns of the people of this version.
+     * @return The frozen columns, getUsers() rows.
+     */
+    public PersonColumns columns() {
+        return columns;
+    }
+    /**
+     * Gives access to the CSR offsets of the relations of this version.
+     * @return Offsets array, must not be modified.
+     */
+    public int[] offsets() {
+        return relations.offsets();
+    }
+    /**
+     * Gives access to the CSR neighbors of the relations of this version.
+     * @return Neighbors array, must not be modified.
+     */
+    public int[] neighbors() {
+        return relations.neighbors();
+    }
+
+}
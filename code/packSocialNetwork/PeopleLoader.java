@@ -0,0 +1,252 @@
+package packSocialNetwork;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * PeopleLoader parses people files in parallel. The file is split into byte ranges that end on line boundaries,
+ * each range is parsed into Person's on a fork-join pool with a hand-written comma/semicolon tokenizer, and the
+ * parsed people are returned in file order so they can be added to the Social Network by a single writer.
+ * The file must follow the format: idperson,name,lastname,birthdate,gender,birthplace,home,studiedat,workplaces,films,groupcode
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class PeopleLoader {
+
+    // Attributes
+    public static final String HEADER = "idperson,name,lastname,birthdate,gender,birthplace,home,studiedat,workplaces,films,groupcode";
+    private static final int FIELDS = 11;
+    private static final int MIN_CHUNK = 1 << 16;
+    private static final String[] EMPTY_ARRAY = new String[0];
+
+    /**
+     * Result of parsing a people file.
+     */
+    public static class Result {
+        private final Person[] people;
+        private final int malformed;
+
+        private Result(Person[] people, int malformed) {
+            this.people = people;
+            this.malformed = malformed;
+        }
+        /**
+         * Getter of the parsed people in file order.
+         * @return Parsed people.
+         */
+        public Person[] getPeople() {
+            return people;
+        }
+        /**
+         * Getter of the number of lines that did not follow the format.
+         * @return Number of malformed lines.
+         */
+        public int getMalformed() {
+            return malformed;
+        }
+    }
+
+    // Constructors
+    /**
+     * Not instantiable, only static methods.
+     */
+    private PeopleLoader() {}
+
+    // Methods
+    /**
+     * Parses all the people of a file in parallel.
+     * @param file Path of the file.
+     * @return The parsed people and the number of malformed lines, or null if the file does not start with the header.
+     * @throws IOException If the file can not be read.
+     */
+    public static Result load(Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        int start = nextLine(data, 0);
+        if (!HEADER.equals(decode(data, 0, trimEnd(data, 0, start)))) {
+            return null;
+        }
+        // Split the body into chunks that end on line boundaries
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        int chunk = Math.max(MIN_CHUNK, (data.length - start) / (parallelism * 4) + 1);
+        ArrayList<int[]> ranges = new ArrayList<int[]>();
+        while (start < data.length) {
+            int end = start + chunk >= data.length ? data.length : nextLine(data, start + chunk);
+            ranges.add(new int[]{start, end});
+            start = end;
+        }
+        ChunkTask[] tasks = new ChunkTask[ranges.size()];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new ChunkTask(data, ranges.get(i)[0], ranges.get(i)[1]);
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        // Concatenate the chunks in file order
+        int total = 0;
+        int malformed = 0;
+        for (ChunkTask t : tasks) {
+            total += t.count;
+            malformed += t.malformed;
+        }
+        Person[] people = new Person[total];
+        int pos = 0;
+        for (ChunkTask t : tasks) {
+            System.arraycopy(t.people, 0, people, pos, t.count);
+            pos += t.count;
+        }
+        return new Result(people, malformed);
+    }
+    /**
+     * Parses one person given as a String.
+     * @param line Data of the person following the format of the file.
+     * @return The person, or null if the data does not follow the format.
+     */
+    public static Person parse(String line) {
+        byte[] data = line.getBytes(StandardCharsets.UTF_8);
+        return parse(data, 0, data.length);
+    }
+    /**
+     * Parses one line of a people file. The result is the same as splitting the line by ',' and the multivalued
+     * fields by ';' with String.split.
+     * @param data Content of the file.
+     * @param start First byte of the line.
+     * @param end End of the line (excluded), without the line terminator.
+     * @return The person, or null if the line does not follow the format.
+     */
+    public static Person parse(byte[] data, int start, int end) {
+        int[] bounds = new int[FIELDS + 1];
+        int field = 0;
+        bounds[0] = start;
+        for (int i = start; i < end && field < FIELDS; i++) {
+            if (data[i] == ',') {
+                bounds[++field] = i + 1;
+            }
+        }
+        if (field < FIELDS - 1) return null;                 // Less than 11 fields
+        int groupEnd = end;
+        if (field == FIELDS) {                              // There are extra fields, groupcode ends on the next comma
+            groupEnd = bounds[FIELDS] - 1;
+            if (groupEnd == bounds[FIELDS - 1] && !hasContent(data, groupEnd, end)) return null;
+        }
+        else if (end == bounds[FIELDS - 1]) return null;    // Empty groupcode is dropped by split
+        String[] d = new String[FIELDS];
+        for (int f = 0; f < FIELDS - 1; f++) {
+            d[f] = decode(data, bounds[f], bounds[f + 1] - 1);
+        }
+        d[FIELDS - 1] = decode(data, bounds[FIELDS - 1], groupEnd);
+        return new Person(d[0], d[1], d[2], d[3], d[4], d[5], d[6], splitList(d[7]), splitList(d[8]), splitList(d[9]), d[10]);
+    }
+    /**
+     * Splits a multivalued field by ';', dropping the trailing empty values like String.split.
+     * @param s Field to be split.
+     * @return Values of the field.
+     */
+    private static String[] splitList(String s) {
+        if (s.isEmpty()) return new String[]{s};
+        int n = 1;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == ';') n++;
+        }
+        String[] res = new String[n];
+        int from = 0;
+        int k = 0;
+        for (int i = 0; i <= s.length(); i++) {
+            if (i == s.length() || s.charAt(i) == ';') {
+                res[k++] = s.substring(from, i);
+                from = i + 1;
+            }
+        }
+        while (n > 0 && res[n - 1].isEmpty()) n--;
+        if (n == 0) return EMPTY_ARRAY;
+        return n == res.length ? res : Arrays.copyOf(res, n);
+    }
+    /**
+     * Checks if there is any byte that is not a comma in the range.
+     */
+    private static boolean hasContent(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] != ',') return true;
+        }
+        return false;
+    }
+    /**
+     * Obtains the start of the line after the one that contains the given position.
+     */
+    private static int nextLine(byte[] data, int from) {
+        int i = from;
+        while (i < data.length && data[i] != '\n') i++;
+        return Math.min(i + 1, data.length);
+    }
+    /**
+     * Obtains the end of a line without the line terminator.
+     */
+    private static int trimEnd(byte[] data, int start, int next) {
+        int end = next;
+        if (end > start && data[end - 1] == '\n') end--;
+        if (end > start && data[end - 1] == '\r') end--;
+        return end;
+    }
+    /**
+     * Decodes a range of bytes as an UTF-8 String.
+     */
+    private static String decode(byte[] data, int from, int to) {
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the lines of a range of the file.
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private Person[] people;
+        private int count;
+        private int malformed;
+
+        private ChunkTask(byte[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override protected void compute() {
+            people = new Person[64];
+            int pos = start;
+            while (pos < end) {
+                int next = nextLine(data, pos);
+                int lineEnd = trimEnd(data, pos, next);
+                if (!isBlank(data, pos, lineEnd)) {
+                    Person p = parse(data, pos, lineEnd);
+                    if (p == null) {
+                        malformed++;
+                    }
+                    else {
+                        if (count == people.length) people = Arrays.copyOf(people, count * 2);
+                        people[count++] = p;
+                    }
+                }
+                pos = next;
+            }
+        }
+
+        private static boolean isBlank(byte[] data, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (data[i] != ' ' && data[i] != '\t') return false;
+            }
+            return true;
+        }
+    }
+
+}
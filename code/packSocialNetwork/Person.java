@@ -1,10 +1,15 @@
 package packSocialNetwork;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Objects;
 
 /**
  * Person has a lot of data/information and can have relations with other packSocialNetwork.Person's on the Social Network.
+ * All the attributes but the identifier repeat a lot among people ("Donostia", "Informatika", "Avatar", "G6101"...),
+ * so they are stored as codes of the global StringDictionary and decoded by the getters.
+ * The people of the Social Network are views of a row of its PersonColumns; a Person created with a constructor
+ * keeps its own codes until the Social Network copies them to a row.
  * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
  *
  * @author Iyán Álvarez and Davy Wellinger
@@ -13,17 +18,13 @@ import java.util.Objects;
 public class Person implements Comparable<Person> {
 
     // Attributes
+    public static final int NO_DATE = -1;                   // Birthdate key of a birthdate that can not be parsed
+    private static final int[] EMPTY = new int[0];
     private String identifier;
-    private String name;
-    private String surname;
-    private String birthdate;
-    private String gender;
-    private String birthplace;
-    private String home;
-    private String[] studydata;
-    private String[] workdata;
-    private String[] movies;
-    private String groupcode;
+    private PersonColumns columns;                          // Store of the row this person is a view of, or null
+    private int row;
+    private int[] codes;                                    // Own codes (see PersonColumns) if it is not a view
+    private int[][] lists;
 
     // Constructors
     /**
@@ -53,16 +54,31 @@ public class Person implements Comparable<Person> {
      */
     public Person(String identifier, String name, String surname, String birthdate, String gender, String birthplace, String home, String[] studydata, String[] workdata, String[] movies, String groupcode) {
         this.identifier = identifier;       // 0
-        this.name = name;                   // 1
-        this.surname = surname;             // 2
-        this.birthdate = birthdate;         // 3
-        this.gender = gender;               // 4
-        this.birthplace = birthplace;       // 5
-        this.home = home;                   // 6
-        this.studydata = studydata;         // 7
-        this.workdata = workdata;           // 8
-        this.movies = movies;               // 9
-        this.groupcode = groupcode;         // 10
+        StringDictionary dictionary = StringDictionary.global();
+        this.codes = new int[PersonColumns.COLUMNS];
+        codes[PersonColumns.NAME] = dictionary.encode(name);                // 1
+        codes[PersonColumns.SURNAME] = dictionary.encode(surname);          // 2
+        codes[PersonColumns.BIRTHDATE] = dictionary.encode(birthdate);      // 3
+        codes[PersonColumns.DATE_KEY] = dateKey(birthdate);
+        codes[PersonColumns.GENDER] = dictionary.encode(gender);            // 4
+        codes[PersonColumns.BIRTHPLACE] = dictionary.encode(birthplace);    // 5
+        codes[PersonColumns.HOME] = dictionary.encode(home);                // 6
+        this.lists = new int[PersonColumns.LISTS][];
+        lists[PersonColumns.STUDYDATA] = dictionary.encode(studydata);      // 7
+        lists[PersonColumns.WORKDATA] = dictionary.encode(workdata);        // 8
+        lists[PersonColumns.MOVIES] = dictionary.encode(movies);            // 9
+        codes[PersonColumns.GROUPCODE] = dictionary.encode(groupcode);      // 10
+    }
+    /**
+     * Creates a view of a row of a PersonColumns (see PersonColumns.view).
+     * @param identifier User ID's for the Social Network.
+     * @param columns The store.
+     * @param row Index of the row.
+     */
+    Person(String identifier, PersonColumns columns, int row) {
+        this.identifier = identifier;
+        this.columns = columns;
+        this.row = row;
     }
 
     // Getters
@@ -78,120 +94,114 @@ public class Person implements Comparable<Person> {
      * @return Name of the person.
      */
     public String getName() {
-        return name;
+        return StringDictionary.global().decode(code(PersonColumns.NAME));
     }
     /**
      * Getter of the user's surname.
      * @return Surname of the person.
      */
     public String getSurname() {
-        return surname;
+        return StringDictionary.global().decode(code(PersonColumns.SURNAME));
     }
     /**
      * Getter of the user's birthdate.
      * @return Birthdate of the person.
      */
     public String getBirthdate() {
-        return birthdate;
+        return StringDictionary.global().decode(code(PersonColumns.BIRTHDATE));
     }
     /**
      * Getter of the user's Gender.
      * @return Gender of the person.
      */
     public String getGender() {
-        return gender;
+        return StringDictionary.global().decode(code(PersonColumns.GENDER));
     }
     /**
      * Getter of the user's birthdate year.
      * @return Year of birthdate of the person.
      */
     public int getBirthdateYear() {
-        String[] sarr = birthdate.split("-");
-        return Integer.parseInt(sarr[2]);
+        int key = code(PersonColumns.DATE_KEY);
+        if (key == NO_DATE) throw new NumberFormatException("Invalid birthdate: " + getBirthdate());
+        return key / 10000;
+    }
+    /**
+     * Getter of the user's birthdate as a number that keeps the order of the dates.
+     * @return Birthdate packed as yyyymmdd, or NO_DATE if it could not be parsed.
+     */
+    public int getBirthdateKey() {
+        return code(PersonColumns.DATE_KEY);
     }
     /**
      * Getter of the user's birthplace.
      * @return Birthplace of the person.
      */
     public String getBirthplace() {
-        return birthplace;
+        return StringDictionary.global().decode(code(PersonColumns.BIRTHPLACE));
     }
     /**
      * Getter of the user's home.
      * @return Home of the person.
      */
     public String getHome() {
-        return home;
+        return StringDictionary.global().decode(code(PersonColumns.HOME));
     }
     /**
      * Getter of the user's favourite movies.
      * @return Favourite movies of the person.
      */
     public String getMovies() {
-        StringBuilder moviesS = new StringBuilder();
-        for(int i = 0; i < movies.length; i++) {
-            moviesS.append(movies[i]);
-            if (i < movies.length-1) {
-                moviesS.append(";");
-            }
-        }
-        return moviesS.toString();
+        return joined(list(PersonColumns.MOVIES));
     }
     /**
      * Getter of the user's Studydata array.
-     * @return user's Studydata (studydata)
+     * @return user's Studydata (studydata), a new array on every call.
      */
     public String[] getStudydata() {
-        return studydata;
+        return StringDictionary.global().decode(list(PersonColumns.STUDYDATA));
     }
     /**
      * Getter of the user's Workdata array.
-     * @return user's Workdata (workdata)
+     * @return user's Workdata (workdata), a new array on every call.
      */
     public String[] getWorkdata() {
-        return workdata;
+        return StringDictionary.global().decode(list(PersonColumns.WORKDATA));
     }
     /**
      * Getter of the user's Movies array.
-     * @return user's Movies (movies)
+     * @return user's Movies (movies), a new array on every call.
      */
     public String[] getMoviesdata() {
-        return movies;
+        return StringDictionary.global().decode(list(PersonColumns.MOVIES));
     }
     /**
      * Getter of the user's Groupcode.
      * @return Groupcode of the person.
      */
     public String getGroupcode() {
-        return groupcode;
+        return StringDictionary.global().decode(code(PersonColumns.GROUPCODE));
     }
     /**
      * Gets the basic information of the user: ID Surname
      * @return Values of ID and Surname separated by blanks.
      */
     public String getBasicInfo() {
-        return identifier + " " + surname;
+        return identifier + " " + getSurname();
     }
     /**
      * Gets the basic information of the user: Name Surname Birthplace StudyData
      * @return Values of Name, Surname, Birthplace and StudyData separated by blanks.
      */
     public String getMoreInfo() {
-        StringBuilder studydataS = new StringBuilder();
-        for(int i = 0; i < studydata.length; i++) {
-            studydataS.append(studydata[i]);
-            if (i < studydata.length-1) {
-                studydataS.append(";");
-            }
-        }
-        return name + " " + surname + " " + birthplace + " " + studydataS;
+        return getName() + " " + getSurname() + " " + getBirthplace() + " " + joined(list(PersonColumns.STUDYDATA));
     }
     /**
      * Gets different information of the user: Birthplace Surname Name
      * @return Values of Birthplace, Surname and Name separated by blanks.
      */
     public String getDifferentInfo() {
-        return this.birthplace + " " + this.surname + " " + this.name;
+        return getBirthplace() + " " + getSurname() + " " + getName();
     }
 
     //Setters
@@ -207,49 +217,50 @@ public class Person implements Comparable<Person> {
      * @param name Name.
      */
     public void setName(String name) {
-        this.name = name;
+        setCode(PersonColumns.NAME, StringDictionary.global().encode(name));
     }
     /**
      * Setter for surname.
      * @param surname Surname.
      */
     public void setSurname(String surname) {
-        this.surname = surname;
+        setCode(PersonColumns.SURNAME, StringDictionary.global().encode(surname));
     }
     /**
      * Setter for Birthdate.
      * @param birthdate Birthdate.
      */
     public void setBirthdate(String birthdate) {
-        this.birthdate = birthdate;
+        setCode(PersonColumns.BIRTHDATE, StringDictionary.global().encode(birthdate));
+        setCode(PersonColumns.DATE_KEY, dateKey(birthdate));
     }
     /**
      * Setter for Gender.
      * @param gender Gender.
      */
     public void setGender(String gender) {
-        this.gender = gender;
+        setCode(PersonColumns.GENDER, StringDictionary.global().encode(gender));
     }
     /**
      * Setter for Birthplace.
      * @param birthplace Birthplace.
      */
     public void setBirthplace(String birthplace) {
-        this.birthplace = birthplace;
+        setCode(PersonColumns.BIRTHPLACE, StringDictionary.global().encode(birthplace));
     }
     /**
      * Setter for Home.
      * @param home Home.
      */
     public void setHome(String home) {
-        this.home = home;
+        setCode(PersonColumns.HOME, StringDictionary.global().encode(home));
     }
     /**
      * Setter for Groupcode.
      * @param groupcode Groupcode.
      */
     public void setGroupcode(String groupcode) {
-        this.groupcode = groupcode;
+        setCode(PersonColumns.GROUPCODE, StringDictionary.global().encode(groupcode));
     }
 
     // Methods
@@ -270,30 +281,118 @@ public class Person implements Comparable<Person> {
      * @return The basic information of a packSocialNetwork.Person in the specified format.
      */
     @Override public String toString() {
-        StringBuilder studydataS = new StringBuilder();
-        for(int i = 0; i < studydata.length; i++) {
-            studydataS.append(studydata[i]);
-            if (i < studydata.length-1) {
-                studydataS.append(";");
+        return  identifier + "," + getName() + "," + getSurname() + "," + getBirthdate() + "," + getGender() + "," +
+                getBirthplace() + "," + getHome() + "," + joined(list(PersonColumns.STUDYDATA)) + "," + joined(list(PersonColumns.WORKDATA)) +
+                "," + joined(list(PersonColumns.MOVIES)) + "," + getGroupcode();
+    }
+    /**
+     * Decodes a multivalued attribute and joins its values with ';'.
+     */
+    private static String joined(int[] codes) {
+        StringDictionary dictionary = StringDictionary.global();
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < codes.length; i++) {
+            s.append(dictionary.decode(codes[i]));
+            if (i < codes.length - 1) {
+                s.append(";");
             }
         }
-        StringBuilder workdataS = new StringBuilder();
-        for(int i = 0; i < workdata.length; i++) {
-            workdataS.append(workdata[i]);
-            if (i < workdata.length-1) {
-                workdataS.append(";");
-            }
+        return s.toString();
+    }
+    /**
+     * Getter of a code of an int column (see PersonColumns), from the row or from its own codes.
+     */
+    private int code(int column) {
+        if (columns != null) return columns.get(column, row);
+        if (codes != null) return codes[column];
+        return column == PersonColumns.DATE_KEY ? NO_DATE : StringDictionary.NULL;
+    }
+    private void setCode(int column, int value) {
+        if (columns != null) {
+            columns.set(column, row, value);
+            return;
         }
-        StringBuilder moviesS = new StringBuilder();
-        for(int i = 0; i < movies.length; i++) {
-            moviesS.append(movies[i]);
-            if (i < movies.length-1) {
-                moviesS.append(";");
-            }
+        if (codes == null) {
+            codes = new int[PersonColumns.COLUMNS];
+            Arrays.fill(codes, StringDictionary.NULL);
+            codes[PersonColumns.DATE_KEY] = NO_DATE;
+        }
+        codes[column] = value;
+    }
+    /**
+     * Getter of the codes of a multivalued column (see PersonColumns), from the row or from its own codes.
+     * @return The codes, or null if the person has no value.
+     */
+    private int[] list(int list) {
+        if (columns != null) return columns.getList(list, row);
+        return lists == null ? null : lists[list];
+    }
+    /**
+     * Copies the codes of the person to be stored in a row of a PersonColumns.
+     * @return Value of each int column of PersonColumns.
+     */
+    int[] rowCodes() {
+        int[] res = new int[PersonColumns.COLUMNS];
+        for (int c = 0; c < res.length; c++) res[c] = code(c);
+        return res;
+    }
+    /**
+     * Copies the codes of the multivalued attributes of the person to be stored in a row of a PersonColumns.
+     * @return Codes of each multivalued column of PersonColumns, an empty array if it has no value.
+     */
+    int[][] rowLists() {
+        int[][] res = new int[PersonColumns.LISTS][];
+        for (int l = 0; l < res.length; l++) {
+            res[l] = list(l);
+            if (res[l] == null) res[l] = EMPTY;
+        }
+        return res;
+    }
+    /**
+     * Copies the person into one that is not a view, so it does not change if its row does.
+     * @return The copy.
+     */
+    Person detach() {
+        Person p = new Person(identifier);
+        p.codes = rowCodes();
+        p.lists = new int[PersonColumns.LISTS][];
+        for (int l = 0; l < p.lists.length; l++) {
+            int[] list = list(l);
+            p.lists[l] = list == null ? null : list.clone();
+        }
+        return p;
+    }
+    /**
+     * Estimates the heap used by the person, without the values kept in the dictionary and in the PersonColumns.
+     * @return Approximate size in bytes of the object, its identifier and its own codes.
+     */
+    public long memoryBytes() {
+        long bytes = 32 + StringDictionary.stringBytes(identifier);
+        if (codes != null) bytes += arrayBytes(codes);
+        if (lists != null) {
+            bytes += 32;
+            for (int[] l : lists) bytes += arrayBytes(l);
         }
-        return  identifier + "," + name + "," + surname + "," + birthdate + "," + gender + "," +
-                birthplace + "," + home + "," + studydataS + "," + workdataS +
-                "," + moviesS + "," + groupcode;
+        return bytes;
+    }
+    /**
+     * Estimates the heap the person would use with its own String for every value, as when it did not use codes.
+     * @return Approximate size in bytes of the object, its Strings and its arrays of Strings.
+     */
+    public long stringLayoutBytes() {
+        long bytes = 64 + StringDictionary.stringBytes(identifier);
+        for (String s : new String[]{getName(), getSurname(), getBirthdate(), getGender(), getBirthplace(), getHome(), getGroupcode()}) {
+            bytes += StringDictionary.stringBytes(s);
+        }
+        for (String[] list : new String[][]{getStudydata(), getWorkdata(), getMoviesdata()}) {
+            if (list == null) continue;
+            bytes += arrayBytes(new int[list.length]);
+            for (String s : list) bytes += StringDictionary.stringBytes(s);
+        }
+        return bytes;
+    }
+    private static long arrayBytes(int[] a) {
+        return a == null ? 0 : (16 + 4L * a.length + 7) & ~7;
     }
     /**
      * Compares a Person with the given Person by the ID.
@@ -320,38 +419,68 @@ public class Person implements Comparable<Person> {
     @Override public int hashCode() {
         return Objects.hash(identifier);
     }
+    /**
+     * Packs a birthdate in dd-mm-year format as the number yyyymmdd, so dates can be compared as ints.
+     * Only the year is required: a day or month that can not be parsed is packed as 00.
+     * @param date Birthdate in dd-mm-year format.
+     * @return The packed birthdate, or NO_DATE if the year can not be parsed.
+     */
+    public static int dateKey(String date) {
+        if (date == null) return NO_DATE;
+        String[] sarr = date.split("-");
+        if (sarr.length < 3) return NO_DATE;
+        int year;
+        try {
+            year = Integer.parseInt(sarr[2]);
+        } catch (NumberFormatException e) {
+            return NO_DATE;
+        }
+        if (year < 0 || year > Integer.MAX_VALUE / 10000 - 1) return NO_DATE;
+        return year * 10000 + datePart(sarr[1], 12) * 100 + datePart(sarr[0], 31);
+    }
+    /**
+     * Gives the packed birthdate (see dateKey) of one of the bounds of a range of dates.
+     * @param date A year, or a date in dd-mm-year format.
+     * @param upper true if it is the limit of the range; a year then includes all its days.
+     * @return The packed date, or NO_DATE if it is not valid.
+     */
+    public static int dateBound(String date, boolean upper) {
+        if (date.indexOf('-') >= 0) return dateKey(date);
+        try {
+            int year = Integer.parseInt(date);
+            if (year < 0 || year > Integer.MAX_VALUE / 10000 - 1) return NO_DATE;
+            return year * 10000 + (upper ? 9999 : 0);
+        } catch (NumberFormatException e) {
+            return NO_DATE;
+        }
+    }
+    /**
+     * Parses the day or month of a birthdate.
+     * @return The value, or 0 if it is not a number between 1 and max.
+     */
+    private static int datePart(String s, int max) {
+        try {
+            int v = Integer.parseInt(s);
+            return v >= 1 && v <= max ? v : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    /**
+     * Comparator of the people born between two dates: by birthplace, then surname and then name.
+     * @return The comparator.
+     */
     public static Comparator<Person> comparatorDatesList() {
-        return new Comparator<Person>() {
-            @Override public int compare(Person o1, Person o2) {
-                int res;
-                if (o1.getBirthplace().compareTo(o2.getBirthplace()) == 0) {
-                    if (o1.getSurname().compareTo(o2.getSurname()) == 0) {
-                        if (o1.getName().compareTo(o2.getName()) == 0) {
-                            res = 0;
-                        }
-                        else if (o1.getName().compareTo(o2.getName()) < 0) {
-                            res = -1;
-                        } else {
-                            res = 1;
-                        }
-                    }
-                    else if (o1.getSurname().compareTo(o2.getSurname()) < 0) {
-                        res = -1;
-                    }
-                    else {
-                        res = 1;
-                    }
-                }
-                else if (o1.getBirthplace().compareTo(o2.getBirthplace()) < 0) {
-                    res = -1;
-                }
-                else {
-                    res = 1;
-                }
-                return res;
-            }
-        };
+        return DATES_LIST;
     }
+    private static final Comparator<Person> DATES_LIST = new Comparator<Person>() {
+        @Override public int compare(Person o1, Person o2) {
+            int res = o1.getBirthplace().compareTo(o2.getBirthplace());
+            if (res == 0) res = o1.getSurname().compareTo(o2.getSurname());
+            if (res == 0) res = o1.getName().compareTo(o2.getName());
+            return res;
+        }
+    };
     /**
      * Method for using in other methods. Compares a person by its Studydata.
      * @param ob2 Studydata of the comparing Person.
@@ -362,9 +491,10 @@ public class Person implements Comparable<Person> {
 
         int counter=0;
 
+        String[] own = this.getStudydata();
         for (String s : ob2) {
-            for (int e = 0; e < this.getStudydata().length; e++) {
-                if (s.equalsIgnoreCase(this.getStudydata()[e])) {
+            for (int e = 0; e < own.length; e++) {
+                if (s.equalsIgnoreCase(own[e])) {
                     counter++;
                 }
             }
@@ -386,9 +516,10 @@ public class Person implements Comparable<Person> {
 
         int counter=0;
 
+        String[] own = this.getWorkdata();
         for (String s : ob2) {
-            for (int e = 0; e < this.getWorkdata().length; e++) {
-                if (s.equalsIgnoreCase(this.getWorkdata()[e])) {
+            for (int e = 0; e < own.length; e++) {
+                if (s.equalsIgnoreCase(own[e])) {
                     counter++;
                 }
             }
@@ -410,9 +541,10 @@ public class Person implements Comparable<Person> {
 
         int counter=0;
 
+        String[] own = this.getMoviesdata();
         for (String s : ob2) {
-            for (int e = 0; e < this.getMoviesdata().length; e++) {
-                if (s.equalsIgnoreCase(this.getMoviesdata()[e])) {
+            for (int e = 0; e < own.length; e++) {
+                if (s.equalsIgnoreCase(own[e])) {
                     counter++;
                 }
             }
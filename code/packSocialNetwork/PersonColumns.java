@@ -0,0 +1,184 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+
+/**
+ * PersonColumns stores the people of the Social Network by columns (struct of arrays) instead of one object per
+ * person: row i is the person with index i in the Social Network, the same index used by the relations graph.
+ * There is an int column for each attribute coded with the StringDictionary, a column with the birthdate packed as
+ * yyyymmdd, and an offsets array plus a values array for each multivalued attribute (the codes of row i are
+ * values[offsets[i]] .. values[offsets[i + 1] - 1]), so scans and group-bys are loops over primitive arrays.
+ * The Person's of the Social Network are views of a row (see view()).
+ * Rows are only appended, so a frozen copy of the store (see freeze()) can share its arrays: the store writes after
+ * the last row of the copy, and the arrays that grow are replaced by new ones.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class PersonColumns {
+
+    // Attributes
+    public static final int NAME = 0;                       // Int columns
+    public static final int SURNAME = 1;
+    public static final int BIRTHDATE = 2;
+    public static final int GENDER = 3;
+    public static final int BIRTHPLACE = 4;
+    public static final int HOME = 5;
+    public static final int GROUPCODE = 6;
+    public static final int DATE_KEY = 7;                   // Birthdate packed as yyyymmdd, or Person.NO_DATE
+    public static final int COLUMNS = 8;
+    public static final int STUDYDATA = 0;                  // Multivalued columns
+    public static final int WORKDATA = 1;
+    public static final int MOVIES = 2;
+    public static final int LISTS = 3;
+    private final int[][] columns;
+    private final int[][] offsets;
+    private final int[][] values;
+    private final int[] valueCount;
+    private int size;
+    private final boolean frozen;
+
+    // Constructors
+    /**
+     * Creates an empty store.
+     * @param capacity Initial number of rows.
+     */
+    public PersonColumns(int capacity) {
+        int c = Math.max(1, capacity);
+        this.columns = new int[COLUMNS][c];
+        this.offsets = new int[LISTS][c + 1];
+        this.values = new int[LISTS][c];
+        this.valueCount = new int[LISTS];
+        this.size = 0;
+        this.frozen = false;
+    }
+    /**
+     * Creates a frozen copy of a store, sharing its arrays.
+     */
+    private PersonColumns(int[][] columns, int[][] offsets, int[][] values, int[] valueCount, int size) {
+        this.columns = columns;
+        this.offsets = offsets;
+        this.values = values;
+        this.valueCount = valueCount;
+        this.size = size;
+        this.frozen = true;
+    }
+
+    // Methods
+    /**
+     * Adds a row at the end of the store.
+     * @param codes Value of each int column, COLUMNS values.
+     * @param lists Codes of each multivalued column, LISTS arrays.
+     * @return Index of the new row.
+     * @throws IllegalStateException If the store is a frozen copy.
+     */
+    public int add(int[] codes, int[][] lists) {
+        if (frozen) throw new IllegalStateException("A frozen store can not be modified");
+        if (size == columns[0].length) {
+            int capacity = size + (size >> 1) + 1;
+            for (int c = 0; c < COLUMNS; c++) columns[c] = Arrays.copyOf(columns[c], capacity);
+            for (int l = 0; l < LISTS; l++) offsets[l] = Arrays.copyOf(offsets[l], capacity + 1);
+        }
+        for (int c = 0; c < COLUMNS; c++) columns[c][size] = codes[c];
+        for (int l = 0; l < LISTS; l++) {
+            int[] list = lists[l];
+            if (valueCount[l] + list.length > values[l].length) {
+                values[l] = Arrays.copyOf(values[l], Math.max(valueCount[l] + list.length, values[l].length + (values[l].length >> 1) + 1));
+            }
+            System.arraycopy(list, 0, values[l], valueCount[l], list.length);
+            valueCount[l] += list.length;
+            offsets[l][size + 1] = valueCount[l];
+        }
+        return size++;
+    }
+    /**
+     * Obtains a view of a row.
+     * @param identifier Identifier of the person of the row.
+     * @param row Index of the row.
+     * @return A Person whose attributes are read from and written to the row.
+     */
+    public Person view(String identifier, int row) {
+        return new Person(identifier, this, row);
+    }
+    /**
+     * Getter of a value of an int column.
+     * @param column One of the int columns, NAME .. DATE_KEY.
+     * @param row Index of the row.
+     * @return The code (or packed date) of the row.
+     */
+    public int get(int column, int row) {
+        return columns[column][row];
+    }
+    /**
+     * Setter of a value of an int column. The frozen copies that have the row see the new value too.
+     * @param column One of the int columns, NAME .. DATE_KEY.
+     * @param row Index of the row.
+     * @param value The new code (or packed date).
+     * @throws IllegalStateException If the store is a frozen copy.
+     */
+    public void set(int column, int row, int value) {
+        if (frozen) throw new IllegalStateException("A frozen store can not be modified");
+        columns[column][row] = value;
+    }
+    /**
+     * Getter of the codes of a multivalued column.
+     * @param list One of the multivalued columns, STUDYDATA, WORKDATA or MOVIES.
+     * @param row Index of the row.
+     * @return New array with the codes of the row.
+     */
+    public int[] getList(int list, int row) {
+        return Arrays.copyOfRange(values[list], offsets[list][row], offsets[list][row + 1]);
+    }
+    /**
+     * Gives direct access to an int column for scans. It must not be modified, and it is replaced when it grows.
+     * @param column One of the int columns, NAME .. DATE_KEY.
+     * @return The column, only the first size() values are rows.
+     */
+    public int[] column(int column) {
+        return columns[column];
+    }
+    /**
+     * Gives direct access to the offsets of a multivalued column for scans. It must not be modified.
+     * @param list One of the multivalued columns, STUDYDATA, WORKDATA or MOVIES.
+     * @return The offsets, size() + 1 values.
+     */
+    public int[] offsets(int list) {
+        return offsets[list];
+    }
+    /**
+     * Gives direct access to the codes of a multivalued column for scans. It must not be modified.
+     * @param list One of the multivalued columns, STUDYDATA, WORKDATA or MOVIES.
+     * @return The codes of all the rows one after the other.
+     */
+    public int[] values(int list) {
+        return values[list];
+    }
+    /**
+     * Getter of the number of rows.
+     * @return Number of people stored.
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     * Obtains a frozen copy of the store, that has the rows added so far and can not be modified. It costs constant
+     * time, the arrays are shared.
+     * @return The frozen copy.
+     */
+    public PersonColumns freeze() {
+        return new PersonColumns(columns.clone(), offsets.clone(), values.clone(), valueCount.clone(), size);
+    }
+    /**
+     * Estimates the heap used by the store.
+     * @return Approximate size in bytes of the columns.
+     */
+    public long memoryBytes() {
+        long bytes = 64;
+        for (int[] c : columns) bytes += 16 + 4L * c.length;
+        for (int[] o : offsets) bytes += 16 + 4L * o.length;
+        for (int[] v : values) bytes += 16 + 4L * v.length;
+        return bytes;
+    }
+
+}
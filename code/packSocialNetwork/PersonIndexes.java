@@ -0,0 +1,245 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * PersonIndexes groups the secondary indexes of the people of the Social Network. They are updated every time a
+ * person is added, so the finds by attribute cost the size of their result instead of a scan of all the people.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class PersonIndexes {
+
+    // Attributes
+    private final InvertedIndex surname;
+    private final InvertedIndex birthplace;
+    private final InvertedIndex home;
+    private final InvertedIndex groupcode;
+    private final InvertedIndex studydata;                  // These three ignore case and have one entry per value
+    private final InvertedIndex workdata;
+    private final InvertedIndex movieTitle;
+    private final BirthdateIndex birthdate;
+    private final MovieIndex movies;
+    private final LinkedHashMap<String, SortedView> sorted;   // Sorted view of each attribute searched by value
+    private String[] identifiers;                           // Identifier of each index, the codes of its sorted view
+    private int size;
+    private long buildNanos;
+
+    // Constructors
+    /**
+     * Creates empty indexes.
+     */
+    public PersonIndexes() {
+        this.surname = new InvertedIndex();
+        this.birthplace = new InvertedIndex();
+        this.home = new InvertedIndex();
+        this.groupcode = new InvertedIndex();
+        this.studydata = new InvertedIndex(true);
+        this.workdata = new InvertedIndex(true);
+        this.movieTitle = new InvertedIndex(true);
+        this.birthdate = new BirthdateIndex();
+        this.movies = new MovieIndex();
+        this.sorted = new LinkedHashMap<String, SortedView>();
+        this.identifiers = new String[16];
+        sorted.put("identifier", new SortedView(i -> identifiers[i], false));
+        for (String attribute : new String[]{"name", "surname", "birthdate", "gender", "birthplace", "home", "groupcode"}) {
+            sorted.put(attribute, new SortedView(StringDictionary.global()::decode, true));
+        }
+        this.buildNanos = 0;
+    }
+
+    // Methods
+    /**
+     * Adds a person to all the indexes.
+     * @param p The person.
+     * @param index Index of the person in the Social Network.
+     */
+    public void add(Person p, int index) {
+        long start = System.nanoTime();
+        surname.add(p.getSurname(), index);
+        birthplace.add(p.getBirthplace(), index);
+        home.add(p.getHome(), index);
+        groupcode.add(p.getGroupcode(), index);
+        birthdate.add(p.getBirthdateKey(), index);
+        movies.add(p.getMoviesdata(), index);
+        for (String value : p.getStudydata()) studydata.add(value, index);
+        for (String value : p.getWorkdata()) workdata.add(value, index);
+        for (String value : p.getMoviesdata()) movieTitle.add(value, index);
+        if (index >= identifiers.length) identifiers = Arrays.copyOf(identifiers, Math.max(index + 1, identifiers.length * 2));
+        identifiers[index] = p.getIdentifier();
+        sorted.get("identifier").add(index, index);
+        int[] codes = p.rowCodes();
+        sorted.get("name").add(codes[PersonColumns.NAME], index);
+        sorted.get("surname").add(codes[PersonColumns.SURNAME], index);
+        sorted.get("birthdate").add(codes[PersonColumns.BIRTHDATE], index);
+        sorted.get("gender").add(codes[PersonColumns.GENDER], index);
+        sorted.get("birthplace").add(codes[PersonColumns.BIRTHPLACE], index);
+        sorted.get("home").add(codes[PersonColumns.HOME], index);
+        sorted.get("groupcode").add(codes[PersonColumns.GROUPCODE], index);
+        size = Math.max(size, index + 1);
+        buildNanos += System.nanoTime() - start;
+    }
+    /**
+     * Obtains the people with a surname.
+     * @param value The surname.
+     * @return Indexes of the people in the order they were added.
+     */
+    public IntList bySurname(String value) {
+        return surname.get(value);
+    }
+    /**
+     * Obtains the people born in a city.
+     * @param value The city.
+     * @return Indexes of the people in the order they were added.
+     */
+    public IntList byBirthplace(String value) {
+        return birthplace.get(value);
+    }
+    /**
+     * Obtains the people that live in a city.
+     * @param value The city.
+     * @return Indexes of the people in the order they were added.
+     */
+    public IntList byHome(String value) {
+        return home.get(value);
+    }
+    /**
+     * Obtains the people of a group.
+     * @param value The groupcode.
+     * @return Indexes of the people in the order they were added.
+     */
+    public IntList byGroupcode(String value) {
+        return groupcode.get(value);
+    }
+    /**
+     * Obtains the people born between two dates.
+     * @param from First date (included) packed as yyyymmdd (see Person.dateKey).
+     * @param to Last date (included) packed as yyyymmdd.
+     * @return Indexes of the people sorted by birthdate.
+     */
+    public int[] bornBetween(int from, int to) {
+        return birthdate.range(from, to);
+    }
+    /**
+     * Obtains the people with a value of an attribute, ignoring case except for the identifier.
+     * @param attribute One of identifier, name, surname, birthdate, gender, birthplace, home or groupcode.
+     * @param value The value searched.
+     * @return Indexes of the people in the order they were added, or null if the attribute has no sorted view.
+     */
+    public int[] byValue(String attribute, String value) {
+        SortedView view = sorted.get(attribute);
+        return view == null ? null : view.equalRange(value);
+    }
+    /**
+     * Counts the people born between two dates.
+     * @param from First date (included) packed as yyyymmdd (see Person.dateKey).
+     * @param to Last date (included) packed as yyyymmdd.
+     * @return Number of people.
+     */
+    public int countBornBetween(int from, int to) {
+        return birthdate.count(from, to);
+    }
+    /**
+     * Counts the people with a value of an attribute, as byValue() or containingAll() with that value would find.
+     * @param attribute One of identifier, name, surname, birthdate, gender, birthplace, home, groupcode, studydata,
+     *                  workdata or movies.
+     * @param value The value searched.
+     * @return Number of people, or -1 if the attribute does not exist.
+     */
+    public int count(String attribute, String value) {
+        SortedView view = sorted.get(attribute);
+        if (view != null) return view.count(value);
+        InvertedIndex index = multiValued(attribute);
+        return index == null ? -1 : index.get(value).size();
+    }
+    /**
+     * Obtains the people that have all the given values of a multi-valued attribute, ignoring case.
+     * @param attribute One of studydata, workdata or movies.
+     * @param values The values searched.
+     * @return Indexes of the people in ascending order, or null if the attribute is not one of them.
+     */
+    public int[] containingAll(String attribute, String[] values) {
+        InvertedIndex index = multiValued(attribute);
+        if (index == null) return null;
+        IntList[] lists = new IntList[values.length];
+        for (int i = 0; i < values.length; i++) {
+            lists[i] = index.get(values[i]);
+        }
+        return PostingLists.intersect(lists);
+    }
+    /**
+     * Index of a multi-valued attribute.
+     * @return The index, or null if the attribute is not studydata, workdata or movies.
+     */
+    private InvertedIndex multiValued(String attribute) {
+        switch (attribute) {
+            case "studydata":
+                return studydata;
+            case "workdata":
+                return workdata;
+            case "movies":
+                return movieTitle;
+            default:
+                return null;
+        }
+    }
+    /**
+     * Getter of the number of people indexed.
+     * @return Highest index added plus one.
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     * Getter of the index of favourite movies.
+     * @return The movie index.
+     */
+    public MovieIndex movies() {
+        return movies;
+    }
+    /**
+     * Getter of the time spent updating the indexes.
+     * @return Nanoseconds spent adding people to the indexes since they were created.
+     */
+    public long buildNanos() {
+        return buildNanos;
+    }
+    /**
+     * Estimates the heap used by the indexes.
+     * @return Approximate size in bytes of all the indexes.
+     */
+    public long memoryBytes() {
+        long bytes = surname.memoryBytes() + birthplace.memoryBytes() + home.memoryBytes() + groupcode.memoryBytes() + birthdate.memoryBytes() + movies.memoryBytes()
+                + studydata.memoryBytes() + workdata.memoryBytes() + movieTitle.memoryBytes();
+        for (SortedView view : sorted.values()) bytes += view.memoryBytes();
+        return bytes + 16 + 8L * identifiers.length;
+    }
+    /**
+     * Gives a String with the number of values and the memory of each index.
+     * @return One line per index.
+     */
+    public String statistics() {
+        StringBuilder s = new StringBuilder();
+        String[] names = {"surname", "birthplace", "home", "groupcode", "studydata", "workdata", "movie title"};
+        InvertedIndex[] indexes = {surname, birthplace, home, groupcode, studydata, workdata, movieTitle};
+        for (int i = 0; i < names.length; i++) {
+            s.append("Index ").append(names[i]).append(": ").append(indexes[i].valueCount()).append(" values, ")
+                    .append(indexes[i].memoryBytes()).append(" bytes\n");
+        }
+        s.append("Index birthdate: ").append(birthdate.size()).append(" people, ").append(birthdate.memoryBytes()).append(" bytes\n");
+        s.append("Index movies: ").append(movies.movieCount()).append(" movies, ").append(movies.collectionCount())
+                .append(" collections, ").append(movies.memoryBytes()).append(" bytes\n");
+        long viewBytes = 0, viewNanos = 0;
+        for (SortedView view : sorted.values()) {
+            viewBytes += view.memoryBytes();
+            viewNanos += view.mergeNanos();
+        }
+        s.append("Sorted views: ").append(sorted.size()).append(" attributes, ").append(viewBytes).append(" bytes, sorted in ")
+                .append(viewNanos / 1000).append(" us\n");
+        return s.toString();
+    }
+
+}
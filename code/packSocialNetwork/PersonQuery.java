@@ -0,0 +1,227 @@
+package packSocialNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * PersonQuery is a conjunction of predicates over the attributes of the people, answered with the indexes of
+ * PersonIndexes. The number of people matching each predicate is estimated from the indexes (a count of a posting
+ * list or of a range of a sorted view, without copying it), the most selective predicate gives the candidates, and
+ * the rest are applied from the most to the least selective one as bitmap filters over the candidates. The bitmap of
+ * a predicate that matches many people is computed scanning its column of the PersonColumns with ColumnFilters,
+ * instead of setting a bit for each person of its index.
+ * Queries can be built with where() and bornBetween(), or parsed from text such as:
+ *   birthplace=Donostia AND year in 1985..1990 AND movies=Avatar
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class PersonQuery {
+
+    // Attributes
+    private static final String[] VALUE_ATTRIBUTES = {"identifier", "name", "surname", "birthdate", "gender", "birthplace", "home", "groupcode"};
+    private static final String[] CONTAINS_ATTRIBUTES = {"studydata", "workdata", "movies"};
+    private static final String[] COLUMN_ATTRIBUTES = {"name", "surname", "birthdate", "gender", "birthplace", "home", "groupcode"};
+    private static final int[] COLUMNS = {PersonColumns.NAME, PersonColumns.SURNAME, PersonColumns.BIRTHDATE, PersonColumns.GENDER,
+            PersonColumns.BIRTHPLACE, PersonColumns.HOME, PersonColumns.GROUPCODE};
+    private static final int SCAN_RATIO = 8;                // Scan the column if a predicate matches 1/8 of the people
+    private static final String AND = "\\s+(?i:and)\\s+(?=(?i:" + String.join("|", VALUE_ATTRIBUTES) + "|"
+            + String.join("|", CONTAINS_ATTRIBUTES) + "|year)(?:\\s*=|\\s+(?i:in)\\s))";  // Only an AND before a predicate
+    private final ArrayList<Predicate> predicates;
+
+    /**
+     * One predicate: the value of an attribute, one of the values of a multi-valued attribute, or a range of
+     * birthdates.
+     */
+    private static class Predicate {
+        private final String attribute;
+        private final String value;                         // null for a range of birthdates
+        private final int from;
+        private final int to;
+        private final String text;
+
+        private Predicate(String attribute, String value, int from, int to, String text) {
+            this.attribute = attribute;
+            this.value = value;
+            this.from = from;
+            this.to = to;
+            this.text = text;
+        }
+        private int count(PersonIndexes indexes) {
+            return value == null ? indexes.countBornBetween(from, to) : indexes.count(attribute, value);
+        }
+        private int[] people(PersonIndexes indexes) {
+            if (value == null) return indexes.bornBetween(from, to);
+            int[] res = indexes.byValue(attribute, value);
+            return res != null ? res : indexes.containingAll(attribute, new String[]{value});
+        }
+        /**
+         * Selects the people that match the predicate scanning their column.
+         * @return Selection bitmap, or null if the attribute has no column.
+         */
+        private long[] scan(PersonColumns people) {
+            if (value == null) return ColumnFilters.range(people.column(PersonColumns.DATE_KEY), people.size(), from, to);
+            int c = Arrays.asList(COLUMN_ATTRIBUTES).indexOf(attribute);
+            if (c < 0) return null;
+            long[] codes = StringDictionary.global().codesIgnoringCase(value);
+            return ColumnFilters.in(people.column(COLUMNS[c]), people.size(), codes);
+        }
+    }
+
+    /**
+     * People that match a query and the plan followed to find them.
+     */
+    public static class Result {
+        private final int[] people;
+        private final String plan;
+
+        private Result(int[] people, String plan) {
+            this.people = people;
+            this.plan = plan;
+        }
+        /**
+         * Getter of the people found.
+         * @return Indexes of the people in ascending order.
+         */
+        public int[] getPeople() {
+            return people;
+        }
+        /**
+         * Getter of the plan.
+         * @return The predicates in the order they were applied, each one with its estimated number of people.
+         */
+        public String getPlan() {
+            return plan;
+        }
+    }
+
+    // Constructors
+    /**
+     * Creates a query without predicates, that matches everyone.
+     */
+    public PersonQuery() {
+        this.predicates = new ArrayList<Predicate>();
+    }
+
+    // Methods
+    /**
+     * Adds a predicate on the value of an attribute, compared ignoring case except for the identifier.
+     * For studydata, workdata and movies the person must have the value among theirs; several values separated
+     * by ';' must all be among theirs.
+     * @param attribute One of identifier, name, surname, birthdate, gender, birthplace, home, groupcode, studydata,
+     *                  workdata or movies.
+     * @param value The value.
+     * @return This query.
+     * @throws IllegalArgumentException If the attribute does not exist.
+     */
+    public PersonQuery where(String attribute, String value) {
+        if (Arrays.asList(VALUE_ATTRIBUTES).contains(attribute)) {
+            predicates.add(new Predicate(attribute, value, 0, 0, attribute + "=" + value));
+        }
+        else if (Arrays.asList(CONTAINS_ATTRIBUTES).contains(attribute)) {
+            for (String v : value.split(";")) {
+                predicates.add(new Predicate(attribute, v, 0, 0, attribute + "=" + v));
+            }
+        }
+        else {
+            throw new IllegalArgumentException("Unknown attribute " + attribute);
+        }
+        return this;
+    }
+    /**
+     * Adds a predicate on the birthdate.
+     * @param from First date (included) packed as yyyymmdd (see Person.dateKey).
+     * @param to Last date (included) packed as yyyymmdd.
+     * @return This query.
+     */
+    public PersonQuery bornBetween(int from, int to) {
+        predicates.add(new Predicate("birthdate", null, from, to, "birthdate in " + from + ".." + to));
+        return this;
+    }
+    /**
+     * Parses a query: predicates separated by AND, each one attribute=value, or for the birthdate a range
+     * "year in from..to" or "birthdate in from..to" with years or dates (dd-mm-year). "year=y" is the whole year y.
+     * An AND only separates predicates if an attribute with = or in follows it, so values may contain "and".
+     * @param text The query.
+     * @return The parsed query.
+     * @throws IllegalArgumentException If the query does not follow the format.
+     */
+    public static PersonQuery parse(String text) {
+        PersonQuery q = new PersonQuery();
+        for (String part : text.trim().split(AND)) {
+            String[] sides = part.split("\\s*=\\s*|\\s+(?i:in)\\s+", 2);
+            if (sides.length != 2 || sides[0].isEmpty() || sides[1].isEmpty()) {
+                throw new IllegalArgumentException("Wrong predicate " + part);
+            }
+            String attribute = sides[0].trim().toLowerCase();
+            String value = sides[1].trim();
+            if (attribute.equals("year") || (attribute.equals("birthdate") && value.contains(".."))) {
+                String[] range = value.split("\\.\\.", 2);
+                int from = Person.dateBound(range[0].trim(), false);
+                int to = Person.dateBound(range[range.length - 1].trim(), true);
+                if (from == Person.NO_DATE || to == Person.NO_DATE) throw new IllegalArgumentException("Wrong dates " + value);
+                q.predicates.add(new Predicate("birthdate", null, from, to, part));
+            }
+            else {
+                q.where(attribute, value);
+            }
+        }
+        return q;
+    }
+    /**
+     * Finds the people that match all the predicates.
+     * @param indexes Indexes of the people of the Social Network.
+     * @param people Attributes of the same people by columns.
+     * @return The people found and the plan.
+     */
+    public Result run(PersonIndexes indexes, PersonColumns people) {
+        if (predicates.isEmpty()) {
+            int[] all = new int[indexes.size()];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+            return new Result(all, "Plan: everyone");
+        }
+        final int[] estimate = new int[predicates.size()];
+        Integer[] plan = new Integer[predicates.size()];
+        for (int i = 0; i < plan.length; i++) {
+            estimate[i] = predicates.get(i).count(indexes);
+            plan[i] = i;
+        }
+        Arrays.sort(plan, new Comparator<Integer>() {       // Most selective first
+            @Override public int compare(Integer a, Integer b) {
+                return Integer.compare(estimate[a], estimate[b]);
+            }
+        });
+        StringBuilder s = new StringBuilder("Plan:");
+        for (int i = 0; i < plan.length; i++) {
+            s.append(i == 0 ? " " : " -> ").append(predicates.get(plan[i]).text).append(" (").append(estimate[plan[i]]).append(")");
+        }
+        int[] candidates = estimate[plan[0]] == 0 ? new int[0] : predicates.get(plan[0]).people(indexes);
+        int size = candidates.length;
+        int n = indexes.size();
+        long[] bitmap = size > 0 && plan.length > 1 ? new long[(n + 63) >>> 6] : null;
+        for (int i = 1; i < plan.length && size > 0; i++) {
+            Predicate predicate = predicates.get(plan[i]);
+            long[] scanned = (long) estimate[plan[i]] * SCAN_RATIO > n ? predicate.scan(people) : null;
+            int[] found = scanned == null ? predicate.people(indexes) : null;
+            if (found != null) {
+                for (int p : found) bitmap[p >>> 6] |= 1L << p;
+            }
+            long[] selection = scanned != null ? scanned : bitmap;
+            int k = 0;
+            for (int c = 0; c < size; c++) {
+                int p = candidates[c];
+                if ((selection[p >>> 6] & (1L << p)) != 0) candidates[k++] = p;
+            }
+            size = k;
+            if (found != null) {
+                for (int p : found) bitmap[p >>> 6] = 0;      // Cheaper than clearing the whole bitmap
+            }
+        }
+        int[] res = Arrays.copyOf(candidates, size);
+        Arrays.sort(res);
+        return new Result(res, s.toString());
+    }
+
+}
@@ -0,0 +1,71 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * PostingLists intersects posting lists (person indexes sorted in ascending order). The smallest list drives the
+ * intersection and each of its indexes is searched in the other lists by galloping (exponential search from the
+ * last position found), so the cost depends on the smallest list and not on the biggest ones.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class PostingLists {
+
+    // Constructors
+    /**
+     * Not instantiable, only static methods.
+     */
+    private PostingLists() {}
+
+    // Methods
+    /**
+     * Obtains the indexes that are in all the lists.
+     * @param lists Posting lists sorted in ascending order, at least one.
+     * @return Common indexes in ascending order.
+     */
+    public static int[] intersect(IntList[] lists) {
+        IntList[] bySize = lists.clone();
+        Arrays.sort(bySize, new Comparator<IntList>() {
+            @Override public int compare(IntList a, IntList b) {
+                return Integer.compare(a.size(), b.size());
+            }
+        });
+        int[] res = bySize[0].toArray();
+        int size = res.length;
+        for (int l = 1; l < bySize.length && size > 0; l++) {
+            IntList list = bySize[l];
+            int k = 0;
+            int pos = 0;
+            for (int i = 0; i < size && pos < list.size(); i++) {
+                pos = gallop(list, pos, res[i]);
+                if (pos < list.size() && list.get(pos) == res[i]) res[k++] = res[i];
+            }
+            size = k;
+        }
+        return size == res.length ? res : Arrays.copyOf(res, size);
+    }
+    /**
+     * Position of the first value that is not smaller than the given one, searching from a position on.
+     */
+    private static int gallop(IntList list, int from, int value) {
+        int n = list.size();
+        if (from >= n || list.get(from) >= value) return from;
+        int lo = from;                                      // list.get(lo) < value
+        int step = 1;
+        while (lo + step < n && list.get(lo + step) < value) {
+            lo += step;
+            step <<= 1;
+        }
+        int hi = Math.min(n, lo + step);                    // list.get(hi) >= value or hi == n
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (list.get(mid) < value) lo = mid;
+            else hi = mid;
+        }
+        return hi;
+    }
+
+}
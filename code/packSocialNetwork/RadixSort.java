@@ -0,0 +1,66 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+
+/**
+ * RadixSort sorts primitive long keys with a stable least significant digit radix sort of 16-bit digits,
+ * moving a parallel int array of values along with the keys.
+ * Only non-negative keys are supported.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class RadixSort {
+
+    // Attributes
+    private static final int BITS = 16;
+    private static final int BUCKETS = 1 << BITS;
+
+    // Constructors
+    /**
+     * Not instantiable, only static methods.
+     */
+    private RadixSort() {}
+
+    // Methods
+    /**
+     * Sorts the first n keys in ascending order. Equal keys keep their relative order, and values[i] is moved
+     * together with keys[i].
+     * @param keys Keys to be sorted, must be non-negative.
+     * @param values Values attached to the keys.
+     * @param n Number of keys to be sorted.
+     */
+    public static void sort(long[] keys, int[] values, int n) {
+        long[] k1 = keys;
+        int[] v1 = values;
+        long[] k2 = new long[n];
+        int[] v2 = new int[n];
+        int[] count = new int[BUCKETS];
+        for (int shift = 0; shift < 64; shift += BITS) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++) {
+                count[(int) (k1[i] >>> shift) & (BUCKETS - 1)]++;
+            }
+            if (n == 0 || count[(int) (k1[0] >>> shift) & (BUCKETS - 1)] == n) continue;   // All keys share this digit
+            int sum = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                int c = count[b];
+                count[b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int pos = count[(int) (k1[i] >>> shift) & (BUCKETS - 1)]++;
+                k2[pos] = k1[i];
+                v2[pos] = v1[i];
+            }
+            long[] tk = k1; k1 = k2; k2 = tk;
+            int[] tv = v1; v1 = v2; v2 = tv;
+        }
+        if (k1 != keys) {                                   // Result ended in the auxiliary arrays
+            System.arraycopy(k1, 0, keys, 0, n);
+            System.arraycopy(v1, 0, values, 0, n);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package packSocialNetwork;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * RelationsLoader parses a whole relations file into a primitive array of relation keys (see
+ * AdjacencyGraph.edgeKey) in file order, so the relations can be added to the graph in bulk.
+ * The file must follow the format: friend1,friend2
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class RelationsLoader {
+
+    // Attributes
+    public static final String HEADER = "friend1,friend2";
+
+    /**
+     * Result of parsing a relations file.
+     */
+    public static class Result {
+        private long[] keys = new long[64];
+        private int count;
+        private int notFound;
+        private int malformed;
+        private int selfRelations;
+
+        private void add(long key) {
+            if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+            keys[count++] = key;
+        }
+        /**
+         * Getter of the relation keys in file order, only the first getCount() are valid.
+         * @return Relation keys.
+         */
+        public long[] getKeys() {
+            return keys;
+        }
+        /**
+         * Getter of the number of relation keys.
+         * @return Number of relations between existing users.
+         */
+        public int getCount() {
+            return count;
+        }
+        /**
+         * Getter of the number of relations with at least one ID that was not found.
+         * @return Number of relations with unknown users.
+         */
+        public int getNotFound() {
+            return notFound;
+        }
+        /**
+         * Getter of the number of lines that did not follow the format.
+         * @return Number of malformed lines.
+         */
+        public int getMalformed() {
+            return malformed;
+        }
+        /**
+         * Getter of the number of relations of a user with himself/herself.
+         * @return Number of self relations.
+         */
+        public int getSelfRelations() {
+            return selfRelations;
+        }
+    }
+
+    // Constructors
+    /**
+     * Not instantiable, only static methods.
+     */
+    private RelationsLoader() {}
+
+    // Methods
+    /**
+     * Parses all the relations of a file.
+     * @param file Path of the file.
+     * @param index Function that gives the index of a user ID, or -1 if it does not exist.
+     * @return The parsed relations, or null if the file does not start with the header.
+     * @throws IOException If the file can not be read.
+     */
+    public static Result load(Path file, ToIntFunction<String> index) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        Result res = new Result();
+        boolean header = true;
+        int pos = 0;
+        while (pos < data.length) {
+            int next = pos;
+            while (next < data.length && data[next] != '\n') next++;
+            int end = next;
+            if (end > pos && data[end - 1] == '\r') end--;
+            if (header) {
+                if (!HEADER.equals(new String(data, pos, end - pos, StandardCharsets.UTF_8))) return null;
+                header = false;
+            }
+            else if (end > pos) {
+                int comma = pos;
+                while (comma < end && data[comma] != ',') comma++;
+                int secondEnd = comma + 1;
+                while (secondEnd < end && data[secondEnd] != ',') secondEnd++;
+                if (comma >= end - 1 || secondEnd == comma + 1) {
+                    res.malformed++;
+                }
+                else {
+                    String p1 = new String(data, pos, comma - pos, StandardCharsets.UTF_8);
+                    String p2 = new String(data, comma + 1, secondEnd - comma - 1, StandardCharsets.UTF_8);
+                    if (p1.equals(p2)) {
+                        res.selfRelations++;
+                    }
+                    else {
+                        int ind1 = index.applyAsInt(p1);
+                        int ind2 = index.applyAsInt(p2);
+                        if (ind1 < 0 || ind2 < 0) res.notFound++;
+                        else res.add(AdjacencyGraph.edgeKey(ind1, ind2));
+                    }
+                }
+            }
+            pos = next + 1;
+        }
+        return header ? null : res;
+    }
+
+}
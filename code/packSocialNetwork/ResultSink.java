@@ -0,0 +1,42 @@
+package packSocialNetwork;
+
+/**
+ * ResultSink is where the find methods of the Social Network write their results record by record, so a result is
+ * never built whole in memory before it is printed, whatever the number of people it has.
+ * Writing errors are thrown as java.io.UncheckedIOException, so the find methods do not depend on where they write.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public interface ResultSink extends AutoCloseable {
+
+    /**
+     * Writes some text.
+     * @param text The text.
+     * @return This sink.
+     */
+    ResultSink append(CharSequence text);
+    /**
+     * Writes a line: some text followed by a line break.
+     * @param text The text of the line.
+     * @return This sink.
+     */
+    default ResultSink line(CharSequence text) {
+        return append(text).append("\n");
+    }
+    /**
+     * Sends everything written so far to its destination.
+     */
+    void flush();
+    /**
+     * Getter of the amount of output.
+     * @return Number of bytes sent to the destination or waiting in the buffer.
+     */
+    long bytes();
+    /**
+     * Flushes the sink and releases its destination.
+     */
+    @Override void close();
+
+}
@@ -0,0 +1,268 @@
+package packSocialNetwork;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * SnapshotFile writes and reads a binary snapshot of the whole Social Network, so it can be restarted without
+ * parsing the text files again. The snapshot is written with a FileChannel and read through a MappedByteBuffer.
+ * Format (big endian):
+ *   header: magic, version, number of people, number of strings, number of neighbors, number of relations
+ *   string dictionary: length in bytes and UTF-8 bytes of every distinct value
+ *   people: dictionary codes of identifier, name, surname, birthdate, gender, birthplace, home and groupcode,
+ *           and count followed by codes of studydata, workdata and movies
+ *   relations: CSR offsets (people + 1 ints) and neighbors
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class SnapshotFile {
+
+    // Attributes
+    private static final int MAGIC = 0x534E4554;            // "SNET"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * 4;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Content of a snapshot file.
+     */
+    public static class Content {
+        private final Person[] people;
+        private final int[] offsets;
+        private final int[] neighbors;
+
+        private Content(Person[] people, int[] offsets, int[] neighbors) {
+            this.people = people;
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+        }
+        /**
+         * Getter of the people, the position of each one is its index in the graph.
+         * @return People of the snapshot.
+         */
+        public Person[] getPeople() {
+            return people;
+        }
+        /**
+         * Getter of the CSR offsets of the relations.
+         * @return Offsets array.
+         */
+        public int[] getOffsets() {
+            return offsets;
+        }
+        /**
+         * Getter of the CSR neighbors of the relations.
+         * @return Neighbors array.
+         */
+        public int[] getNeighbors() {
+            return neighbors;
+        }
+    }
+
+    // Constructors
+    /**
+     * Not instantiable, only static methods.
+     */
+    private SnapshotFile() {}
+
+    // Methods
+    /**
+     * Writes a snapshot. It is written and forced aside and then moved over the file (see moveDurably), so when this
+     * method returns the snapshot is on the disk, and a crash leaves either the old file or the new one whole.
+     * @param file Path of the file, it is overwritten if it exists.
+     * @param people People of the Social Network, the position of each one is its index in the graph.
+     * @param graph Relations of the Social Network.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(Path file, Person[] people, AdjacencyGraph graph) throws IOException {
+        HashMap<String, Integer> codes = new HashMap<String, Integer>();
+        ArrayList<String> strings = new ArrayList<String>();
+        int[][] records = new int[people.length][];
+        for (int i = 0; i < people.length; i++) {
+            Person p = people[i];
+            String[] st = p.getStudydata();
+            String[] wd = p.getWorkdata();
+            String[] mv = p.getMoviesdata();
+            int[] r = new int[8 + 3 + st.length + wd.length + mv.length];
+            int k = 0;
+            r[k++] = code(p.getIdentifier(), codes, strings);
+            r[k++] = code(p.getName(), codes, strings);
+            r[k++] = code(p.getSurname(), codes, strings);
+            r[k++] = code(p.getBirthdate(), codes, strings);
+            r[k++] = code(p.getGender(), codes, strings);
+            r[k++] = code(p.getBirthplace(), codes, strings);
+            r[k++] = code(p.getHome(), codes, strings);
+            r[k++] = code(p.getGroupcode(), codes, strings);
+            for (String[] list : new String[][]{st, wd, mv}) {
+                r[k++] = list.length;
+                for (String s : list) r[k++] = code(s, codes, strings);
+            }
+            records[i] = r;
+        }
+        int[] offsets = graph.offsets();
+        int[] neighbors = graph.neighbors();
+        Path aside = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(aside, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(people.length).putInt(strings.size())
+                    .putInt(offsets[people.length]).putInt(graph.edgeCount());
+            for (String s : strings) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                ensure(ch, buf, 4);
+                buf.putInt(b.length);
+                int pos = 0;
+                while (pos < b.length) {
+                    ensure(ch, buf, 1);
+                    int len = Math.min(buf.remaining(), b.length - pos);
+                    buf.put(b, pos, len);
+                    pos += len;
+                }
+            }
+            for (int[] r : records) {
+                for (int v : r) {
+                    ensure(ch, buf, 4);
+                    buf.putInt(v);
+                }
+            }
+            for (int i = 0; i <= people.length; i++) {
+                ensure(ch, buf, 4);
+                buf.putInt(offsets[i]);
+            }
+            for (int i = 0; i < offsets[people.length]; i++) {
+                ensure(ch, buf, 4);
+                buf.putInt(neighbors[i]);
+            }
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(aside);
+            throw e;
+        }
+        moveDurably(aside, file);
+    }
+    /**
+     * Moves a file that is already forced to the disk over another one atomically, and forces the directory, so the
+     * move is also on the disk. Forcing a directory is not supported on every platform; there it is skipped.
+     * @param aside The file to move.
+     * @param file The file it replaces.
+     * @throws IOException If the file can not be moved.
+     */
+    static void moveDurably(Path aside, Path file) throws IOException {
+        Files.move(aside, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null) return;
+        try (FileChannel ch = FileChannel.open(directory, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {                           // Directories can not be opened on some platforms
+        }
+    }
+    /**
+     * Reads a snapshot mapping the file in memory. The counts of the header and of the lists must fit in the file,
+     * which is checked before allocating anything, the identifiers must be unique, the offsets must not decrease and
+     * the neighbors must be other people of the snapshot, each relation stored once in each direction, or it is not
+     * valid.
+     * @param file Path of the file.
+     * @return Content of the snapshot.
+     * @throws IOException If the file can not be read or it is not a valid snapshot.
+     */
+    public static Content read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES || ch.size() > Integer.MAX_VALUE) throw new IOException("Not a snapshot file");
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt() != MAGIC) throw new IOException("Not a snapshot file");
+            if (buf.getInt() != VERSION) throw new IOException("Unsupported snapshot version");
+            int numPeople = buf.getInt();
+            int numStrings = buf.getInt();
+            int numNeighbors = buf.getInt();
+            int numRelations = buf.getInt();
+            if (numPeople < 0 || numStrings < 0 || numRelations < 0 || numNeighbors != 2L * numRelations) throw new IOException("Corrupted snapshot header");
+            long least = 4L * numStrings + 4L * (8 + 3) * numPeople + 4L * (numPeople + 1) + 4L * numNeighbors;
+            if (least > buf.remaining()) throw new IOException("Corrupted snapshot header");
+            try {
+                String[] strings = new String[numStrings];
+                byte[] tmp = new byte[64];
+                for (int i = 0; i < numStrings; i++) {
+                    int len = buf.getInt();
+                    if (len < 0 || len > buf.remaining()) throw new IOException("Corrupted snapshot strings");
+                    if (len > tmp.length) tmp = new byte[Math.max(len, tmp.length * 2)];
+                    buf.get(tmp, 0, len);
+                    strings[i] = new String(tmp, 0, len, StandardCharsets.UTF_8);
+                }
+                Person[] people = new Person[numPeople];
+                HashSet<String> identifiers = new HashSet<String>(numPeople * 2);
+                for (int i = 0; i < numPeople; i++) {
+                    String[] d = new String[8];
+                    for (int k = 0; k < 8; k++) d[k] = strings[buf.getInt()];
+                    String[][] lists = new String[3][];
+                    for (int l = 0; l < 3; l++) {
+                        int len = buf.getInt();
+                        if (len < 0 || len > buf.remaining() / 4) throw new IOException("Corrupted snapshot people");
+                        lists[l] = new String[len];
+                        for (int k = 0; k < lists[l].length; k++) lists[l][k] = strings[buf.getInt()];
+                    }
+                    if (d[0] == null || !identifiers.add(d[0])) throw new IOException("Repeated identifier " + d[0] + " in snapshot");
+                    people[i] = new Person(d[0], d[1], d[2], d[3], d[4], d[5], d[6], lists[0], lists[1], lists[2], d[7]);
+                }
+                IntBuffer ints = buf.asIntBuffer();
+                int[] offsets = new int[numPeople + 1];
+                int[] neighbors = new int[numNeighbors];
+                ints.get(offsets);
+                ints.get(neighbors);
+                if (offsets[0] != 0 || offsets[numPeople] != numNeighbors || ints.hasRemaining()) throw new IOException("Corrupted snapshot relations");
+                LongHashSet ends = new LongHashSet(numNeighbors);   // Each (u,v) of the file, u in the high bits
+                for (int u = 0; u < numPeople; u++) {
+                    if (offsets[u + 1] < offsets[u]) throw new IOException("Corrupted snapshot relations");
+                    for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                        if (neighbors[i] < 0 || neighbors[i] >= numPeople || neighbors[i] == u) throw new IOException("Corrupted snapshot relations");
+                        if (!ends.add(((long) u << 32) | neighbors[i])) throw new IOException("Repeated relation in snapshot");
+                    }
+                }
+                for (int u = 0; u < numPeople; u++) {
+                    for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                        if (!ends.contains(((long) neighbors[i] << 32) | u)) throw new IOException("Relation in one direction only in snapshot");
+                    }
+                }
+                return new Content(people, offsets, neighbors);
+            } catch (RuntimeException e) {                  // Buffer underflow or bad codes
+                throw new IOException("Corrupted snapshot file", e);
+            }
+        }
+    }
+    /**
+     * Obtains the code of a value, adding it to the dictionary if it is new.
+     */
+    private static int code(String s, HashMap<String, Integer> codes, ArrayList<String> strings) {
+        Integer c = codes.get(s);
+        if (c == null) {
+            c = strings.size();
+            codes.put(s, c);
+            strings.add(s);
+        }
+        return c;
+    }
+    /**
+     * Writes the buffer to the channel if it has not enough space for the given bytes.
+     */
+    private static void ensure(FileChannel ch, ByteBuffer buf, int bytes) throws IOException {
+        if (buf.remaining() < bytes) {
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+    }
+
+}
@@ -3,11 +3,20 @@ package packSocialNetwork;
 import packSocialNetworkExceptions.*;
 
 import java.io.*;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * SocialNetwork contains people information and the relations between them if exist.
+ * execute(), findPeople(), getPerson() and getNumUsers() can be called from many threads: they share a StampedLock,
+ * so the commands that add people or relations run alone while any number of queries run at the same time, and the
+ * short lookups first try an optimistic read without locking. The lazy structures that a query can update (sorted
+ * views, birthdate index, CSR compaction and landmarks) synchronize those updates themselves. The menu is meant to
+ * be used by one thread.
  * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
  *
  * @author Iyán Álvarez and Davy Wellinger
@@ -16,22 +25,30 @@ import java.util.*;
 public class SocialNetwork {
 
     // Attributes
-    private HashMap<Person, Integer> personHashMap;
-    private HashMap<Integer, Person> integerHashMap;
-    private ArrayList<ArrayList<Integer>> adjacencyList;
-    private static SocialNetwork instance;
-    private static int numUsers;
+    private Person[] people;                                // Person of each index, only the first numUsers are used
+    private IdentifierMap identifiers;                      // Index of each identifier
+    private AdjacencyGraph adjacencyList;
+    private final ThreadLocal<ChainSearch> chainSearch = ThreadLocal.withInitial(ChainSearch::new);   // Its arrays are reused
+    private LandmarkIndex landmarks = new LandmarkIndex(16);
+    private PersonIndexes indexes = new PersonIndexes();
+    private PersonColumns columns = new PersonColumns(16);    // Attributes of the people by index, the people are views
+    private final StampedLock lock = new StampedLock();
+    private volatile NetworkVersion version;                // Published after each write, read without the lock
+    private MutationLog log;                                // null while recovering or if there is no log
+    private static volatile SocialNetwork instance;
+    private int numUsers;
     private final Scanner sc = new Scanner(System.in);
 
     // Constructors
     /**
-     * Creates an instance of Social Network.
+     * Creates an instance of Social Network, with no mutation log until the menu opens it (see recover()).
      */
     private SocialNetwork() {
-        this.personHashMap = new HashMap<Person, Integer>();
-        this.integerHashMap = new HashMap<Integer, Person>();
-        this.adjacencyList = new ArrayList<ArrayList<Integer>>();
+        this.people = new Person[16];
+        this.identifiers = new IdentifierMap();
+        this.adjacencyList = new AdjacencyGraph();
         numUsers = 0;
+        publish();
     }
 
     // Methods
@@ -42,17 +59,31 @@ public class SocialNetwork {
      * @return The instance of the Social Network.
      */
     public static SocialNetwork getInstance() {
-        if (instance == null) {                             // If instance does not exist
-            instance = new SocialNetwork();                     // Create new instance
+        SocialNetwork sn = instance;
+        if (sn == null) {                                   // If instance does not exist
+            synchronized (SocialNetwork.class) {                // Only one thread creates it
+                sn = instance;
+                if (sn == null) instance = sn = new SocialNetwork();    // Create new instance
+            }
         }
-        return instance;                                    // Return  instance
+        return sn;                                          // Return  instance
+    }
+    /**
+     * Creates an empty Social Network apart from the one of getInstance, that never opens the mutation log, so what
+     * is done with it never reaches the data of the user (see StressCheck).
+     * @return A new Social Network.
+     */
+    static SocialNetwork createPrivate() {
+        return new SocialNetwork();
     }
 
     // 1st milestone
     /**
-     * Presents an initial menu with the different choices for interacting with the social network.
+     * Presents an initial menu with the different choices for interacting with the social network. The changes of
+     * the last runs are recovered first, if a mutation log is set (see recover()).
      */
     public void initialMenu() {
+        recover();
         printInitialMenu();                                 // Prints initial menu
         selectionInitialMenu();                             // Asks user to input and performs tasks
     }
@@ -66,7 +97,8 @@ public class SocialNetwork {
         printPrintOut();                                    // Prints print     (3)
         printFind();                                        // Prints find      (4)
         printSearch();                                      // Prints search    (5)
-        System.out.println("6. Log out \n \n");             // Prints log out   (6)
+        System.out.println("6. Statistics");                // Prints stats     (6)
+        System.out.println("7. Log out \n \n");             // Prints log out   (7)
     }
     /**
      * Prints the choices of the add person people menu.
@@ -75,7 +107,8 @@ public class SocialNetwork {
         System.out.println(
                         "1. Add person or people: \n" +
                         "    M. Manually \n" +
-                        "    F. File ");
+                        "    F. File \n" +
+                        "    S. Snapshot ");
     }
     /**
      * Prints the choices of add relations menu.
@@ -93,7 +126,8 @@ public class SocialNetwork {
         System.out.println(
                         "3. Print out people: \n" +
                         "    C. Console \n" +
-                        "    F. File ");
+                        "    F. File \n" +
+                        "    S. Snapshot ");
     }
     /**
      * Prints the choices of the find menu.
@@ -109,7 +143,9 @@ public class SocialNetwork {
                         "    6. Collection of favourite movies and persons \n" +
                         "    7. Shortest chain of relations \n" +
                         "    8. Longest chain of relations \n" +
-                        "    9. Cliques (not available yet)");
+                        "    9. Cliques \n" +
+                        "    10. Degrees of separation (estimate) \n" +
+                        "    11. People with a favourite movie");
     }
     /**
      * Prints the choices of Search.
@@ -151,13 +187,19 @@ public class SocialNetwork {
                     searchPersonPeopleSelected();                       // Print search     (5)
                     break;                                              // break
                 case 6:                                             // 6 selected
-                    System.out.println("Logging out...");               // Print log out    (6)
+                    try (ResultSink out = ChannelSink.console()) {
+                        printStatistics(out);                               // Print stats      (6)
+                    }
+                    break;                                              // break
+                case 7:                                             // 7 selected
+                    System.out.println("Logging out...");               // Print log out    (7)
+                    closeLog();                                         // Force the last changes to the disk
                     break;                                              // break
                 default:                                            // default
                     break;                                              // break
             }                                                   // Close switch
-            if (option != 6) printInitialMenu();                // If not selected one option print menu again
-        } while (option != 6);                              // Close do while
+            if (option != 7) printInitialMenu();                // If not selected one option print menu again
+        } while (option != 7);                              // Close do while
         sc.close();                                         // Close scanner
     }
     /**
@@ -185,11 +227,11 @@ public class SocialNetwork {
     private void addPersonPeopleSelected() {
         printAddPersonPeople();
         String to;
-        do {                                                    // Perform until having M or F
-            System.out.println("Manually (M) or File (F)");         // Print options
-            System.out.print("\nEnter M or F: ");                   // Print select
+        do {                                                    // Perform until having M, F or S
+            System.out.println("Manually (M), File (F) or Snapshot (S)");   // Print options
+            System.out.print("\nEnter M, F or S: ");                // Print select
             to = sc.next();                                         // Scan user input
-        } while (!(to.equals("M") || to.equals("F")));          // Close do while
+        } while (!(to.equals("M") || to.equals("F") || to.equals("S")));    // Close do while
         if (to.equals("M")) {                                   // If person is added manually
             System.out.println("Follow the next format:");          // Print format
             System.out.println("idperson,name,lastname,birthdate,gender,birthplace,home,studiedat,workplaces,films,groupcode");   // Format specified
@@ -198,14 +240,21 @@ public class SocialNetwork {
                 System.out.print("Completed.\n\n");                     // Print task completed
             } catch (PersonAlreadyAtSocialNetwork e) {              // Treat PersonAlreadyAtSocialNetwork
                 System.out.println("That person is already at the network");    // Print message
+            } catch (IllegalArgumentException e) {                  // Treat wrong input data
+                System.out.println(e.getMessage() + "\n");             // Print message
             }                                                       // Close try catch
         }
-        else {                                                  // If person is added by file
+        else if (to.equals("F")) {                              // If person is added by file
             System.out.println("The file must be on 'files/' directory.");  // Print precondition of file location
             System.out.print("Enter the name of the file: ");   // Ask for file name
             addPeopleFromFile(sc.next());                       // Add people with file data
             System.out.print("Completed.\n\n");                 // Print task completed
         }
+        else {                                                  // If the network is loaded from a snapshot
+            System.out.println("The snapshot must be on 'files/' directory and replaces the current people and relations.");
+            System.out.print("Enter the name of the snapshot: ");
+            loadSnapshot(sc.next());
+        }
     }
     /**
      * Prints Add relation option and performs task.
@@ -247,18 +296,23 @@ public class SocialNetwork {
         printPrintOut();
         String to;
         do {
-            System.out.println("Console (C) or File (F)");
-            System.out.print("\nEnter C or F: ");
+            System.out.println("Console (C), File (F) or Snapshot (S)");
+            System.out.print("\nEnter C, F or S: ");
             to = sc.next();
-        } while (!(to.equals("C") || to.equals("F")));
+        } while (!(to.equals("C") || to.equals("F") || to.equals("S")));
         if (to.equals("C")) {
             printPeopleToConsole();
         }
-        else {
+        else if (to.equals("F")) {
             System.out.println("The file must be on 'files/' directory.");
             System.out.print("Enter the name of the file: ");
             printPeopleToFile(sc.next());
         }
+        else {
+            System.out.println("The snapshot will be on 'files/' directory, with the people and the relations.");
+            System.out.print("Enter the name of the snapshot: ");
+            saveSnapshot(sc.next());
+        }
     }
     /**
      * Prints Find option and performs task.
@@ -267,16 +321,16 @@ public class SocialNetwork {
         printFind();
         int to = 0;
         do {
-            System.out.println("Select one of the previous options (1-8)");
-            System.out.print("\nEnter 1, 2, 3, 4, 5, 6, 7, 8, 9: ");
+            System.out.println("Select one of the previous options (1-11)");
+            System.out.print("\nEnter 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11: ");
             try {
                 to = sc.nextInt();
             } catch (InputMismatchException e) {
-                System.out.println("Error: Introduce a number from 1 to 6 (both included)\n");
+                System.out.println("Error: Introduce a number from 1 to 11 (both included)\n");
                 to = 0;
                 sc.nextLine();
             }
-        } while (to < 1 || 9 < to);
+        } while (to < 1 || 11 < to);
         switch (to) {
             case 1:
                 System.out.println("You have selected: ");
@@ -329,15 +383,20 @@ public class SocialNetwork {
                     System.out.print("\nEnter C or F: ");
                     tos3 = sc.next();
                 } while (!(tos3.equals("C") || tos3.equals("F")));
-                System.out.print("Write the initial year: ");
-                String sn31 = sc.next();
-                System.out.print("Write the limit year: ");
-                String sn32 = sc.next();
-                if (tos3.equals("C")) printPersonBetweenDatesToConsole(Integer.parseInt(sn31), Integer.parseInt(sn32));
+                String sn31, sn32;
+                do {
+                    System.out.print("Write the initial year or date (dd-mm-year): ");
+                    sn31 = sc.next();
+                } while (Person.dateBound(sn31, false) == Person.NO_DATE);
+                do {
+                    System.out.print("Write the limit year or date (dd-mm-year): ");
+                    sn32 = sc.next();
+                } while (Person.dateBound(sn32, true) == Person.NO_DATE);
+                if (tos3.equals("C")) printPersonBetweenDatesToConsole(sn31, sn32);
                 else {
                     System.out.println("The file will be on 'files/' directory.");
                     System.out.print("Enter the name of the file: ");
-                    printPersonBetweenDatesToFile(Integer.parseInt(sn31), Integer.parseInt(sn32), sc.next());
+                    printPersonBetweenDatesToFile(sn31, sn32, sc.next());
                 }
                 break;
             case 4:
@@ -438,15 +497,88 @@ public class SocialNetwork {
                 String sn81 = sc.next();
                 System.out.print("Write finish person: ");
                 String sn82 = sc.next();
+                int limit8;
+                do {
+                    System.out.print("Write the time limit in seconds (0 for no limit): ");
+                    try {
+                        limit8 = Integer.parseInt(sc.next());
+                    } catch (NumberFormatException e) {
+                        limit8 = -1;
+                    }
+                } while (limit8 < 0);
                 if (tos8.equals("C"))
-                    printLongestChainToConsole(sn81, sn82);
+                    printLongestChainToConsole(sn81, sn82, limit8);
                 else {
                     System.out.println("The file will be on 'files/' directory.");
                     System.out.print("Enter the name of the file: ");
-                    printLongestChainToFile(sn81, sn82, sc.next());
+                    printLongestChainToFile(sn81, sn82, limit8, sc.next());
                 }
                 break;
             case 9:
+                System.out.println("You have selected: ");
+                System.out.println( "9. Cliques \n" +
+                        "    A. All maximal cliques of at least k people \n" +
+                        "    M. Maximum clique");
+                String mode9;
+                do {
+                    System.out.println("All (A) or Maximum (M)");
+                    System.out.print("\nEnter A or M: ");
+                    mode9 = sc.next();
+                } while (!(mode9.equals("A") || mode9.equals("M")));
+                int k9 = 0;
+                if (mode9.equals("A")) {
+                    do {
+                        System.out.print("Write the minimum size k (at least 2): ");
+                        try {
+                            k9 = Integer.parseInt(sc.next());
+                        } catch (NumberFormatException e) {
+                            k9 = 0;
+                        }
+                    } while (k9 < 2);
+                }
+                String tos9;
+                do {
+                    System.out.println("Console (C) or File (F)");
+                    System.out.print("\nEnter C or F: ");
+                    tos9 = sc.next();
+                } while (!(tos9.equals("C") || tos9.equals("F")));
+                if (tos9.equals("C"))
+                    printCliquesToConsole(k9);
+                else {
+                    System.out.println("The file will be on 'files/' directory.");
+                    System.out.print("Enter the name of the file: ");
+                    printCliquesToFile(k9, sc.next());
+                }
+                break;
+            case 10:
+                System.out.println("You have selected: ");
+                System.out.println("10. Degrees of separation (estimate)");
+                System.out.print("Write initial person: ");
+                String sn101 = sc.next();
+                System.out.print("Write finish person: ");
+                String sn102 = sc.next();
+                System.out.println(degreesOfSeparationString(sn101, sn102));
+                break;
+            case 11:
+                System.out.println("You have selected: ");
+                System.out.println( "11. People with a favourite movie \n" +
+                        "    C. Console \n" +
+                        "    F. File");
+                String tos11;
+                do {
+                    System.out.println("Console (C) or File (F)");
+                    System.out.print("\nEnter C or F: ");
+                    tos11 = sc.next();
+                } while (!(tos11.equals("C") || tos11.equals("F")));
+                System.out.print("Write the favourite movie: \n");
+                sc.nextLine();
+                String sn11 = sc.nextLine();
+                if (tos11.equals("C")) printPersonWithMovieToConsole(sn11);
+                else {
+                    System.out.println("The file will be on 'files/' directory.");
+                    System.out.print("Enter the name of the file: ");
+                    printPersonWithMovieToFile(sn11, sc.next());
+                }
                 break;
             default:
                 break;
@@ -460,79 +592,137 @@ public class SocialNetwork {
         String att;
         String va;
         do {
-            System.out.println("Please enter a valid attribute: \nidentifier, name, surname, birthdate, gender, birthplace, home, groupcode, studydata, workdata, movies.");
+            System.out.println("Please enter a valid attribute: \nidentifier, name, surname, birthdate, gender, birthplace, home, groupcode, studydata, workdata, movies, query.");
             att = sc.next();
         } while (!(att.equals("identifier") || att.equals("name") || att.equals("surname") || att.equals("birthdate") ||
                 att.equals("gender") || att.equals("birthplace") || att.equals("home") || att.equals("groupcode") ||
-                att.equals("studydata") || att.equals("workdata") || att.equals("movies")));
+                att.equals("studydata") || att.equals("workdata") || att.equals("movies") || att.equals("query")));
+        if (att.equals("query")) {
+            System.out.println("Write the query, predicates separated by AND, e.g.: birthplace=Donostia AND year in 1985..1990 AND movies=Avatar");
+            sc.nextLine();
+            String query = sc.nextLine();
+            try (ResultSink out = ChannelSink.console()) {
+                try {
+                    printQueryResult(query, out);
+                } catch (IllegalArgumentException e) {
+                    out.line("Error: " + e.getMessage());
+                }
+            }
+            return;
+        }
 
         System.out.println("Great, which " + att + " do you want to search?");
         va = sc.next();
-        printSearchedPersonList(va, att, new ArrayList<>(integerHashMap.values()));
+        try (ResultSink out = ChannelSink.console()) {
+            printSearchedPersonList(va, att, out);
+        }
+    }
+    /**
+     * Writes statistics of the Social Network: number of users and relations and memory used by the structures.
+     * @param out Where the statistics are written.
+     */
+    private void printStatistics(ResultSink out) {
+        long stamp = lock.readLock();
+        try {
+            out.line("Users: " + numUsers);
+            out.line("Relations: " + adjacencyList.edgeCount());
+            out.line("Relations memory (CSR): " + adjacencyList.memoryBytes() + " bytes");
+            out.line("Relations memory (ArrayList<ArrayList<Integer>> estimate): " + adjacencyList.listLayoutBytes() + " bytes");
+            out.line("Landmark index: " + landmarks.landmarkCount() + " landmarks, " + landmarks.memoryBytes() + " bytes, built in " + landmarks.buildNanos() / 1000 + " us");
+            out.append(indexes.statistics());
+            long peopleBytes = 0, stringBytes = 0;
+            for (Person p : allPeople()) {
+                peopleBytes += p.memoryBytes();
+                stringBytes += p.stringLayoutBytes();
+            }
+            StringDictionary dictionary = StringDictionary.global();
+            out.line("People memory (columns, dictionary-encoded): " + (peopleBytes + columns.memoryBytes() + dictionary.memoryBytes()) + " bytes, " + dictionary.size() + " distinct values");
+            out.line("People memory (one String per attribute estimate): " + stringBytes + " bytes");
+            out.line("Identifier map: " + (identifiers.memoryBytes() + 16 + 4L * people.length) + " bytes with the Person array");
+            out.line("Person indexes: " + indexes.memoryBytes() + " bytes, updated in " + indexes.buildNanos() / 1000 + " us");
+            if (log != null) out.line(log.statistics());
+            out.line("Network version: " + version.getNumber() + ", held by " + version.getReaders() + " reader(s)\n");
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
     /**
      * Adds a person to the Social Network in lexicographical order.
      * @param data Data of the person.
      *             Must follow the specified format: idperson,name,lastname,birthdate,gender,birthplace,home,studiedat,workplaces,films,groupcode
      * @throws PersonAlreadyAtSocialNetwork If the person's ID already exists in the Social Network.
+     * @throws IllegalArgumentException If the data does not follow the format.
      */
     private void addPerson(String data) throws PersonAlreadyAtSocialNetwork {
-        String[] d = data.split(",");
-        Person np = null;
-        try {
-            String[] d7 = d[7].split(";");
-            String[] d8 = d[8].split(";");
-            String[] d9 = d[9].split(";");
-            np = new Person(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d7, d8, d9, d[10]);
-        } catch (IndexOutOfBoundsException e) {
-            System.out.println("There was an error with your input\n");
-        }
-        if (personHashMap.containsKey(np)) throw new PersonAlreadyAtSocialNetwork();
-        personHashMap.put(np, numUsers);
-        integerHashMap.put(numUsers, np);
-        adjacencyList.add(new ArrayList<Integer>());
+        Person np = PeopleLoader.parse(data);
+        if (np == null) throw new IllegalArgumentException("There was an error with your input");
+        addPerson(np);
+        logChange(MutationLog.PERSON, data);
+        publish();
+    }
+    /**
+     * Adds an already parsed person to the Social Network.
+     * @param np The person.
+     * @throws PersonAlreadyAtSocialNetwork If the person's ID already exists in the Social Network.
+     */
+    private void addPerson(Person np) throws PersonAlreadyAtSocialNetwork {
+        if (!identifiers.put(np.getIdentifier(), numUsers)) throw new PersonAlreadyAtSocialNetwork();
+        Person view = columns.view(np.getIdentifier(), columns.add(np.rowCodes(), np.rowLists()));
+        if (numUsers == people.length) people = Arrays.copyOf(people, numUsers + (numUsers >> 1) + 1);
+        people[numUsers] = view;
+        indexes.add(view, numUsers);
+        adjacencyList.addVertex();
         numUsers++;
     }
+    /**
+     * Obtains the people of the Social Network, without copying them.
+     * @return List view of the people in index order.
+     */
+    private List<Person> allPeople() {
+        return Arrays.asList(people).subList(0, numUsers);
+    }
     /**
      * Adds all the people from the file to the Social Network.
+     * The lines of the file are parsed in parallel by PeopleLoader and then added in file order.
      * The file must be on files/ directory.
      * The file must follow the specified format: idperson,name,lastname,birthdate,gender,birthplace,home,studiedat,workplaces,films,groupcode
      * @param filename Name of the file that contains people that is going to be added to the Social Network.
      */
     private void addPeopleFromFile(String filename) {
         int error = 0;
-        File f;
-        Scanner sf;
         try {
-            f = new File("files/" + filename);
-            sf = new Scanner(f);
-            String sexample = "idperson,name,lastname,birthdate,gender,birthplace,home,studiedat,workplaces,films,groupcode";
-            if (sexample.equals(sf.nextLine())) {
-                while (sf.hasNextLine()) {
+            PeopleLoader.Result result = PeopleLoader.load(new File("files/" + filename).toPath());
+            if (result != null) {
+                logChange(MutationLog.LOAD_PEOPLE, filename);
+                for (Person p : result.getPeople()) {
                     try {
-                        addPerson(sf.nextLine());
+                        addPerson(p);
                     } catch (PersonAlreadyAtSocialNetwork e) {
                         error++;
                     }
                 }
-                sf.close();
+                if (result.getMalformed() > 0) {
+                    System.out.println("Error: " + result.getMalformed() + " line(s) couldn't be added because they don't follow the required format");
+                }
             } else {
                 System.out.println("Error: File data is not in required format");
             }
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             System.out.println("Error: File can not be found");
         }
         if (error > 0) {
             System.out.println("Error: " + error + " users couldn't be added to the Social Network because the user ID already exists\n");
         }
+        publish();
     }
     /**
      * Prints all the people at the Social Network to the console.
      */
     private void printPeopleToConsole() {
-        Collection<Person> tempArray = integerHashMap.values();
-        for (Person person : tempArray) {
-            System.out.println(person.toString());
+        try (ResultSink out = ChannelSink.console()) {
+            for (Person person : allPeople()) {
+                out.line(person.toString());
+            }
         }
     }
     /**
@@ -541,21 +731,72 @@ public class SocialNetwork {
      * @param filename Name of the file that is going to contain all the people in the Social Network.
      */
     private void printPeopleToFile(String filename) {
-        File f = new File("files/" + filename);
-        FileWriter fw;
-        try {
-            fw = new FileWriter(f);
-            String sexample = "idperson,name,lastname,birthdate,gender,birthplace,home,studiedat,workplaces,films,groupcode\n";
-            fw.write(sexample);
-            Collection<Person> tempArray = integerHashMap.values();
-            for (Person person : tempArray) {
-                fw.write(person.toString() + "\n");
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            out.line("idperson,name,lastname,birthdate,gender,birthplace,home,studiedat,workplaces,films,groupcode");
+            for (Person person : allPeople()) {
+                out.line(person.toString());
             }
-            fw.close();
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             System.err.println("Error: File was not found");
         }
     }
+    /**
+     * Saves the people and the relations of the Social Network in a binary snapshot, that becomes the checkpoint of
+     * the mutation log (see MutationLog.checkpoint).
+     * The file will be located on files/ directory with the specified name.
+     * @param filename Name of the snapshot file.
+     */
+    private void saveSnapshot(String filename) {
+        try {
+            SnapshotFile.write(new File("files/" + filename).toPath(), Arrays.copyOf(people, numUsers), adjacencyList);
+        } catch (IOException e) {
+            System.out.println("Error: Snapshot couldn't be written");
+            return;
+        }
+        checkpoint(filename);                               // Only once the snapshot is on the disk
+        System.out.print("Completed.\n\n");
+    }
+    /**
+     * Replaces the people and the relations of the Social Network with the ones of a binary snapshot.
+     * The file must be on files/ directory.
+     * @param filename Name of the snapshot file.
+     */
+    private void loadSnapshot(String filename) {
+        SnapshotFile.Content content;
+        try {
+            content = SnapshotFile.read(new File("files/" + filename).toPath());
+        } catch (NoSuchFileException e) {
+            System.out.println("Error: File can not be found");
+            return;
+        } catch (IOException e) {
+            System.out.println("Error: File is not a valid snapshot");
+            return;
+        }
+        int n = content.getPeople().length;                 // The new network is built aside and then swapped in
+        Person[] newPeople = new Person[n];
+        IdentifierMap newIdentifiers = new IdentifierMap(n);
+        PersonColumns newColumns = new PersonColumns(n);
+        PersonIndexes newIndexes = new PersonIndexes();
+        AdjacencyGraph newGraph = new AdjacencyGraph();
+        for (int i = 0; i < n; i++) {                       // SnapshotFile.read checked that the identifiers are unique
+            Person p = content.getPeople()[i];
+            newIdentifiers.put(p.getIdentifier(), i);
+            newPeople[i] = newColumns.view(p.getIdentifier(), newColumns.add(p.rowCodes(), p.rowLists()));
+            newIndexes.add(newPeople[i], i);
+            newGraph.addVertex();
+        }
+        newGraph.loadCsr(content.getOffsets(), content.getNeighbors());
+        this.people = newPeople;
+        this.identifiers = newIdentifiers;
+        this.columns = newColumns;
+        this.indexes = newIndexes;
+        this.adjacencyList = newGraph;
+        this.landmarks = new LandmarkIndex(16);
+        numUsers = n;
+        checkpoint(filename);
+        publish();
+        System.out.print("Completed.\n\n");
+    }
     /**
      * Adds a relation of 2 people.
      * @param p1 User ID of one person.
@@ -563,54 +804,46 @@ public class SocialNetwork {
      */
     private void addRelation(String p1, String p2) throws RelationAlreadyAtSocialNetwork, PersonNotFoundException, IllegalArgumentException {
         if (p1.equals(p2)) throw new IllegalArgumentException();
-        Person temp1 = new Person(p1);
-        Person temp2 = new Person(p2);
-        if (personHashMap.containsKey(temp1) && personHashMap.containsKey(temp2)) {
-            int ind1 = personHashMap.get(temp1);
-            int ind2 = personHashMap.get(temp2);
-            if (adjacencyList.get(ind1).contains(ind2) || adjacencyList.get(ind2).contains(ind1)) throw new RelationAlreadyAtSocialNetwork();
-            adjacencyList.get(ind1).add(ind2);
-            adjacencyList.get(ind2).add(ind1);
+        int ind1 = identifiers.get(p1);
+        int ind2 = identifiers.get(p2);
+        if (ind1 != IdentifierMap.NOT_FOUND && ind2 != IdentifierMap.NOT_FOUND) {
+            if (adjacencyList.hasEdge(ind1, ind2)) throw new RelationAlreadyAtSocialNetwork();
+            adjacencyList.addEdge(ind1, ind2);
+            landmarks.relationAdded(ind1, ind2);
+            logChange(MutationLog.RELATION, p1, p2);
+            publish();
         }
         else throw new PersonNotFoundException();
     }
     /**
      * Adds all the relations that the specified file contains.
+     * The whole file is parsed first and then the relations are added to the graph in bulk.
      * The file must be on files/ directory.
      * The file must follow the specified format: friend1,friend2
      * @param filename Name of the file that contains relations that are going to be added to the Social Network.
      */
     private void addRelationsFromFile(String filename) {
-        File f;
-        Scanner sf;
         int al = 0;
         int nf = 0;
         try {
-            f = new File("files/" + filename);
-            sf = new Scanner(f);
-            String sexample = "friend1,friend2";
-            if (sexample.equals(sf.nextLine())) {
-                String[] arr;
-                while (sf.hasNextLine()) {
-                    try {
-                        arr = sf.nextLine().split(",");
-                        addRelation(arr[0], arr[1]);
-                    } catch (RelationAlreadyAtSocialNetwork e) {
-                        al++;
-                    } catch (PersonNotFoundException e) {
-                        nf++;
-                    }
-                }
-                sf.close();
+            RelationsLoader.Result result = RelationsLoader.load(new File("files/" + filename).toPath(), identifiers::get);
+            if (result != null) {
+                logChange(MutationLog.LOAD_RELATIONS, filename);
+                al = adjacencyList.addEdges(result.getKeys(), result.getCount());
+                landmarks.invalidate();
+                nf = result.getNotFound();
+                if (result.getSelfRelations() > 0) System.out.println("Error: " + result.getSelfRelations() + " realtionship(s) of a user with himself/herself were ignored");
+                if (result.getMalformed() > 0) System.out.println("Error: " + result.getMalformed() + " line(s) couldn't be added because they don't follow the required format");
             }
             else {
                 System.out.println("Error: File data is not in required format");
             }
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             System.out.println("Error: File can not be found");
         }
         if (al > 0) System.out.println("Error: " + al + " realtionship(s) already at the network");
         if (nf > 0) System.out.println("Error: " + nf + " realtionship(s) couldn't be added; at least one ID was not found on SocialNetwork");
+        publish();
     }
 
     // 2nd milestone
@@ -622,49 +855,38 @@ public class SocialNetwork {
      * @throws PersonNotFoundException If no one in the SocialNetwork has that surname.
      */
     private ArrayList<Person> findPersonBySurname(String surname) throws PersonNotFoundException {
-        ArrayList<Person> arr = new ArrayList<>();
-        Collection<Person> tempArray = integerHashMap.values();
-        for (Person person : tempArray) {
-            if (person.getSurname().equals(surname)) {
-                arr.add(person);
-            }
-        }
-        if (arr.isEmpty()) {
-            throw new PersonNotFoundException();
-        }
-        return arr;
+        return peopleOf(indexes.bySurname(surname));
     }
     /**
-     * Given a surname, returns a String with the friends of the user(s) with that surname.
+     * Given a surname, writes the friends of the user(s) with that surname.
      * @param surname Surname of the person(s) that we want to know his/her friends.
-     * @return A String with the friends of the user(s) with that surname.
+     * @param out Where the friends are written.
      * @throws PersonNotFoundException If no one in the SocialNetwork has that surname.
      */
-    private String findFriendsBySurname(String surname) throws PersonNotFoundException {
-        StringBuilder s = new StringBuilder();
+    private void findFriendsBySurname(String surname, ResultSink out) throws PersonNotFoundException {
         ArrayList<Person> arr = findPersonBySurname(surname);
         String id;
         int tempind;
-        ArrayList<Integer> templist;
+        int[] offsets = adjacencyList.offsets();
+        int[] neighbors = adjacencyList.neighbors();
         for (Person p: arr) {
             id = p.getIdentifier();
-            tempind = personHashMap.get(p);
-            templist = adjacencyList.get(tempind);
-            s.append("The user ").append(id).append(" surname is ").append(surname).append("\nList of the friends: \n");
-            for (Integer i: templist) {
-                s.append(integerHashMap.get(i).getBasicInfo()).append("\n");
+            tempind = identifiers.get(id);
+            out.append("The user ").append(id).append(" surname is ").append(surname).line("\nList of the friends: ");
+            for (int i = offsets[tempind]; i < offsets[tempind + 1]; i++) {
+                out.line(people[neighbors[i]].getBasicInfo());
             }
-            s.append("\n");
+            out.line("");
         }
-        return s.toString();
     }
     /**
      * Given a surname, prints the friends of the user(s) with that surname in the console.
      * @param surname Surname of the person(s) that we want to know his/her friends.
      */
     private void printFriendsBySurnameToConsole(String surname) {
-        try {
-            System.out.println(findFriendsBySurname(surname));
+        try (ResultSink out = ChannelSink.console()) {
+            findFriendsBySurname(surname, out);
+            out.line("");
         } catch (PersonNotFoundException e) {
             System.out.println("Error: Does not exist no one with that surname in the SocialNetwork");
         }
@@ -675,16 +897,9 @@ public class SocialNetwork {
      * @param filename File where we want to save the information.
      */
     private void printFriendsBySurnameToFile(String surname, String filename) {
-        File f;
-        FileWriter fw;
-        String s =  "";
-        try {
-            f = new File("files/" + filename);
-            fw = new FileWriter(f);
-            s += findFriendsBySurname(surname);
-            fw.write(s);
-            fw.close();
-        } catch (IOException e) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            findFriendsBySurname(surname, out);
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error: File was not found");
         } catch (PersonNotFoundException e) {
             System.out.println("Error: Does not exist no one with that surname in the SocialNetwork");
@@ -698,39 +913,45 @@ public class SocialNetwork {
      * @throws PersonNotFoundException If no one in the SocialNetwork has born in the given city.
      */
     private ArrayList<Person> findPersonByCity(String city) throws PersonNotFoundException {
-        ArrayList<Person> arr = new ArrayList<>();
-        Collection<Person> tempArray = integerHashMap.values();
-        for (Person p: tempArray) {
-            if (p.getBirthplace().equals(city)) {
-                arr.add(p);
-            }
-        }
-        if (arr.isEmpty()) {
+        return peopleOf(indexes.byBirthplace(city));
+    }
+    /**
+     * Obtains the Persons of a posting list of the indexes (see PersonIndexes).
+     * @param postings Indexes of the Persons.
+     * @return ArrayList of the Persons in the same order.
+     * @throws PersonNotFoundException If the posting list is empty.
+     */
+    private ArrayList<Person> peopleOf(IntList postings) throws PersonNotFoundException {
+        if (postings.isEmpty()) {
             throw new PersonNotFoundException();
         }
+        ArrayList<Person> arr = new ArrayList<>(postings.size());
+        for (int i = 0; i < postings.size(); i++) {
+            arr.add(people[postings.get(i)]);
+        }
         return arr;
     }
     /**
-     * Given a city, returns a String with the basic info of the user(s) born in that city.
+     * Given a city, writes the basic info of the user(s) born in that city.
      * @param city City of the person(s) that we want to know.
-     * @return A String with the basic info of the user(s) born in the given city.
+     * @param out Where the people are written.
      * @throws PersonNotFoundException If no one in the SocialNetwork has born in the given city.
      */
-    private String findPersonByCityStringBasic(String city) throws PersonNotFoundException {
-        StringBuilder s = new StringBuilder("The user(s) born in " + city + " is/are:\n");
+    private void findPersonByCityBasic(String city, ResultSink out) throws PersonNotFoundException {
         ArrayList<Person> arr = findPersonByCity(city);
+        out.append("The user(s) born in ").append(city).line(" is/are:");
         for (Person p: arr) {
-            s.append(p.getBasicInfo()).append("\n");
+            out.line(p.getBasicInfo());
         }
-        return s.toString();
     }
     /**
      * Given a city, prints the user(s) basic info that has born in the given city in the console.
      * @param city City of the person(s) that we want to know.
      */
     private void printPersonByCityToConsole(String city) {
-        try {
-            System.out.println(findPersonByCityStringBasic(city));
+        try (ResultSink out = ChannelSink.console()) {
+            findPersonByCityBasic(city, out);
+            out.line("");
         } catch (PersonNotFoundException e) {
             System.out.println("Error: Does not exist no one that has born there in the SocialNetwork");
         }
@@ -741,226 +962,180 @@ public class SocialNetwork {
      * @param filename File where we want to save the information.
      */
     private void printPersonByCityToFile(String city, String filename) {
-        File f;
-        FileWriter fw;
-        String s =  "";
-        try {
-            f = new File("files/" + filename);
-            fw = new FileWriter(f);
-            s += findPersonByCityStringBasic(city);
-            fw.write(s);
-            fw.close();
-        } catch (IOException e) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            findPersonByCityBasic(city, out);
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error: File was not found");
         } catch (PersonNotFoundException e) {
             System.out.println("Error: Does not exist no one with that surname in the SocialNetwork");
         }
     }
     /**
-     * Given two dates, finds the Person(s) in the SocialNetwork born between the given years an return them in a
-     * sorted ArrayList of Person.
-     * Pre: Year 1 <= Year2.
-     * @param year1 Start year (included).
-     * @param year2 Limit year (included).
-     * @return ArrayList of Persons in the SocialNetwork born between the given years sorted.
-     * @throws PersonNotFoundException If no one in the SocialNetwork has born between that years.
+     * Given two dates, finds the Person(s) in the SocialNetwork born between them with the birthdate index and
+     * returns them in a sorted ArrayList of Person.
+     * Pre: from <= to.
+     * @param from Start date (included) packed as yyyymmdd.
+     * @param to Limit date (included) packed as yyyymmdd.
+     * @return ArrayList of Persons in the SocialNetwork born between the given dates sorted.
+     * @throws PersonNotFoundException If no one in the SocialNetwork has born between that dates.
      */
-    private ArrayList<Person> findPersonBetweenDates(int year1, int year2) throws PersonNotFoundException {
-        ArrayList<Person> arr = new ArrayList<>();
-        Collection<Person> tempArray = integerHashMap.values();
-        for (Person p: tempArray) {
-            int bdy = p.getBirthdateYear();
-            if (year1 <= bdy && bdy <= year2) {
-                arr.add(p);
-            }
-        }
-        if (arr.isEmpty()) {
+    private ArrayList<Person> findPersonBetweenDates(int from, int to) throws PersonNotFoundException {
+        int[] found = indexes.bornBetween(from, to);
+        if (found.length == 0) {
             throw new PersonNotFoundException();
         }
+        Arrays.sort(found);                                 // Same order as the people were added, for equal people
+        ArrayList<Person> arr = new ArrayList<>(found.length);
+        for (int i : found) {
+            arr.add(people[i]);
+        }
         arr.sort(Person.comparatorDatesList());
         return arr;
     }
     /**
-     * Given two dates, finds the Person(s) in the SocialNetwork born between the given years an return them in a
-     * sorted ArrayList of Person.
-     * Pre: Year 1 <= Year2.
-     * @param year1 Start year (included).
-     * @param year2 Limit year (included).
-     * @return A String with the basic info of the user(s) born in the given city.
-     * @throws PersonNotFoundException If no one in the SocialNetwork has born in the given city.
+     * Given two dates, writes the different info of the user(s) born between them, sorted.
+     * Pre: date1 <= date2.
+     * @param date1 Start year or date (included).
+     * @param date2 Limit year or date (included).
+     * @param out Where the people are written.
+     * @throws PersonNotFoundException If no one in the SocialNetwork has born between the given dates.
      */
-    private String findPersonBetweenDatesString(int year1, int year2) throws PersonNotFoundException {
-        StringBuilder s = new StringBuilder("The user(s) born between " + year1 + " and " + year2 + " is/are:\n");
-        ArrayList<Person> arr = findPersonBetweenDates(year1, year2);
+    private void findPersonBetweenDates(String date1, String date2, ResultSink out) throws PersonNotFoundException {
+        ArrayList<Person> arr = findPersonBetweenDates(Person.dateBound(date1, false), Person.dateBound(date2, true));
+        out.append("The user(s) born between ").append(date1).append(" and ").append(date2).line(" is/are:");
         for (Person p: arr) {
-            s.append(p.getDifferentInfo()).append("\n");
+            out.line(p.getDifferentInfo());
         }
-        return s.toString();
     }
     /**
-     * Given two dates, prints the user(s) basic info that has born between the given years.
-     * @param year1 Start year (included).
-     * @param year2 Limit year (included).
+     * Given two dates, prints the user(s) basic info that has born between the given dates.
+     * @param date1 Start year or date (included).
+     * @param date2 Limit year or date (included).
      */
-    private void printPersonBetweenDatesToConsole(int year1, int year2) {
-        try {
-            System.out.println(findPersonBetweenDatesString(year1, year2));
+    private void printPersonBetweenDatesToConsole(String date1, String date2) {
+        try (ResultSink out = ChannelSink.console()) {
+            findPersonBetweenDates(date1, date2, out);
+            out.line("");
         } catch (PersonNotFoundException e) {
             System.out.println("Error: Does not exist no one that has born between the given dates");
         }
     }
     /**
-     * Given two dates, prints the user(s) basic info that has born between the given years in the specified file.
-     * @param year1 Start year (included).
-     * @param year2 Limit year (included).
+     * Given two dates, prints the user(s) basic info that has born between the given dates in the specified file.
+     * @param date1 Start year or date (included).
+     * @param date2 Limit year or date (included).
      * @param filename File where we want to save the information.
      */
-    private void printPersonBetweenDatesToFile(int year1, int year2, String filename) {
-        File f;
-        FileWriter fw;
-        StringBuilder s = new StringBuilder();
-        try {
-            f = new File("files/" + filename);
-            fw = new FileWriter(f);
-            s.append(findPersonBetweenDatesString(year1, year2));
-            fw.write(s.toString());
-            fw.close();
-        } catch (IOException e) {
+    private void printPersonBetweenDatesToFile(String date1, String date2, String filename) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            findPersonBetweenDates(date1, date2, out);
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error: File was not found");
         } catch (PersonNotFoundException e) {
             System.out.println("Error: Does not exist no one with that has born between the given dates");
         }
     }
     /**
-     * Given a city, returns a String with more info of the user(s) born in that city.
+     * Given a city, writes more info of the user(s) born in that city.
      * @param city City of the person(s) that we want to know.
-     * @return A String with more info of the user(s) born in the given city.
+     * @param out Where the people are written.
      * @throws PersonNotFoundException If no one in the SocialNetwork has born in the given city.
      */
-    private String findPersonByCityStringMore(String city) throws PersonNotFoundException {
-        StringBuilder s = new StringBuilder();
+    private void findPersonByCityMore(String city, ResultSink out) throws PersonNotFoundException {
         ArrayList<Person> arr = findPersonByCity(city);
         for (Person p: arr) {
-            s.append(p.getMoreInfo()).append("\n");
+            out.line(p.getMoreInfo());
         }
-        return s.toString();
     }
     /**
      * Finds the Person(s) in the SocialNetwork that have born in the same city as the ID's given in the file
-     * residential.txt in an String.
+     * residential.txt and writes them.
+     * It reads the current version of the network (see NetworkVersion), so it does not hold the lock while people
+     * and relations are added.
      * Pre: The file residential.txt must be on folder files/
-     * @return String with Persons more info that have born in the city of each ID given in residential.txt.
+     * @param out Where the Persons more info that have born in the city of each ID given in residential.txt are written.
      */
-    private String findPersonByCityResidentialString() {
+    private void findPersonByCityResidential(ResultSink out) {
         File f;
         Scanner fr;
-        StringBuilder s = new StringBuilder();
-        try {
+        try (NetworkVersion v = pinVersion()) {
             f = new File("files/residential.txt");
             fr = new Scanner(f);
             while (fr.hasNext()) {
                 Person p;
                 try {
-                    p = integerHashMap.get(personHashMap.get(new Person(fr.nextLine())));
-                    s.append(p.getIdentifier()).append(" lives in ").append(p.getHome()).append(", and this/these user(s) was/were born there:\n");
-                    s.append(findPersonByCityStringMore(p.getHome())).append("\n");
+                    int index = v.indexOf(fr.nextLine());
+                    p = index == IdentifierMap.NOT_FOUND ? null : v.person(index);
+                    out.append(p.getIdentifier()).append(" lives in ").append(p.getHome()).line(", and this/these user(s) was/were born there:");
+                    int home = v.columns().get(PersonColumns.HOME, index);
+                    int[] born = home == StringDictionary.NULL ? new int[0] : v.bornIn(home);
+                    if (born.length == 0) throw new PersonNotFoundException();
+                    for (int i : born) {
+                        out.line(v.person(i).getMoreInfo());
+                    }
+                    out.line("");
                 } catch (PersonNotFoundException | NullPointerException e) {
-                    s.append("Error: The person does not exist or no one that was born in that hometown.\n\n");
+                    out.line("Error: The person does not exist or no one that was born in that hometown.\n");
                 }
             }
         } catch (FileNotFoundException e) {
             System.out.println("Error: File was not found");
         }
-        return s.toString();
     }
     /**
      * Prints the user(s) more info of the ones that have born in the given ID's birthplace in the console.
      */
     private void printPersonByCityResidentialToConsole() {
-        System.out.println(findPersonByCityResidentialString());
+        try (ResultSink out = ChannelSink.console()) {
+            findPersonByCityResidential(out);
+            out.line("");
+        }
     }
     /**
      * Prints the user(s) more info of the ones that have born in the given ID's birthplace in the specified file.
      * @param filename File where we want to save the information.
      */
     private void printPersonByCityResidentialToFile(String filename) {
-        File f;
-        FileWriter fw;
-        StringBuilder s =  new StringBuilder();
-        try {
-            f = new File("files/" + filename);
-            fw = new FileWriter(f);
-            s.append(findPersonByCityResidentialString());
-            fw.write(s.toString());
-            fw.close();
-        } catch (IOException e) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            findPersonByCityResidential(out);
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error: File was not found");
         }
     }
     /**
-     * Splits Person(s) by individual favourite movies in a HashMap, where the keys are the favourite movies, and the values
-     * an ArrayList of Person that have that favourite movie in common.
-     * @return A HashMap, where the keys are the favourite movies, and the values an ArrayList of Person that have that
-     * favourite movie in common.
-     */
-    private HashMap<String, ArrayList<Person>> splitPersonByMovies() {
-        HashMap<String, ArrayList<Person>> hm = new HashMap<String, ArrayList<Person>>();
-        Collection<Person> tempArray = integerHashMap.values();
-        for (Person p: tempArray) {
-            String fm = p.getMovies();
-            String[] fma = fm.split(";");
-            Arrays.sort(fma);
-            ArrayList<Person> al;
-            if (hm.containsKey(Arrays.toString(fma))) {
-                al = hm.get(Arrays.toString(fma));
-            }
-            else {
-                al = new ArrayList<Person>();
-            }
-            al.add(p);
-            hm.put(Arrays.toString(fma), al);
-        }
-        return hm;
-    }
-    /**
-     * Obtains the list of Person(s) that share that favourite movie in common, if exist.
-     * @param movies The title of the favourite movie.
-     * @return An ArrayList of Person(s) that have in common the given movie as favourite.
-     * @throws PersonNotFoundException If no one in the SocialNetwork has the movie given as favourite.
+     * Obtains the list of Person(s) whose favourite movies are exactly the given collection, if exist.
+     * @param movies The titles of the favourite movies separated by ';', in any order.
+     * @return An ArrayList of Person(s) that have in common the given movies as favourite.
+     * @throws PersonNotFoundException If no one in the SocialNetwork has the movies given as favourite.
      */
     private ArrayList<Person> getPersonListMovies(String movies) throws PersonNotFoundException {
-        HashMap<String, ArrayList<Person>> hm = splitPersonByMovies();
-        String[] moviesA = movies.split(";");
-        Arrays.sort(moviesA);
-        if (hm.containsKey(Arrays.toString(moviesA))) {
-            return hm.get(Arrays.toString(moviesA));
-        }
-        throw new PersonNotFoundException();
+        return peopleOf(indexes.movies().byCollection(movies.split(";")));
     }
     /**
-     * Obtains a String of Person(s) that share that favourite movie in common, if exist.
+     * Writes the Person(s) that share that favourite movie in common, if exist.
      * @param movies The title of the favourite movie.
-     * @return A String of Person(s) basic info that have in common the given movie as favourite.
+     * @param out Where the Person(s) basic info that have in common the given movie as favourite are written.
      */
-    private String getPersonListMoviesString(String movies) {
-        StringBuilder s = new StringBuilder();
+    private void getPersonListMovies(String movies, ResultSink out) {
         try {
             ArrayList<Person> al = getPersonListMovies(movies);
-            s = new StringBuilder("The user(s) with favourite movie " + movies + " is/are:\n");
+            out.append("The user(s) with favourite movie ").append(movies).line(" is/are:");
             for (Person p : al) {
-                s.append(p.getBasicInfo()).append("\n");
+                out.line(p.getBasicInfo());
             }
         } catch (PersonNotFoundException e) {
-            System.out.println("Error: Does not exist no one with the favourite movie " + movies + "\n");
+            out.append("Error: Does not exist no one with the favourite movie ").append(movies).line("\n");
         }
-        return s.toString();
     }
     /**
      * Prints the user(s) that share the specified favourite movies basic info in the console.
      * @param movies Favourite movies of the users we want to find.
      */
     private void printPersonListMoviesToConsole(String movies) {
-        System.out.println(getPersonListMoviesString(movies));
+        try (ResultSink out = ChannelSink.console()) {
+            getPersonListMovies(movies, out);
+            out.line("");
+        }
     }
     /**
      * Prints the user(s) that share the specified favourite movies basic info in the specified file.
@@ -968,622 +1143,729 @@ public class SocialNetwork {
      * @param filename File where we want to save the information.
      */
     private void printPersonListMoviesToFile(String movies, String filename) {
-        File f;
-        FileWriter fw;
-        String s =  "";
-        try {
-            f = new File("files/" + filename);
-            fw = new FileWriter(f);
-            s += getPersonListMoviesString(movies);
-            fw.write(s);
-            fw.close();
-        } catch (IOException e) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            getPersonListMovies(movies, out);
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error: File was not found");
         }
     }
     /**
-     * Splits Person(s) by individual favourite movies in a HashMap, where the keys are the favourite movies, and the values
-     * an ArrayList of Person that have that favourite movie in common.
-     * @return A String of the keys in the HashMap, where the keys are the favourite movies, and the values an ArrayList of
-     * Person that have that favourite movie in common.
-     */
-    private String splitPersonByMoviesString() {
-        StringBuilder s = new StringBuilder();
-        ArrayList<Person> al;
-        HashMap<String, ArrayList<Person>> hm = splitPersonByMovies();
-        String[] keys = hm.keySet().toArray(new String[0]);
-        for (String sk: keys) {
-            s.append(sk).append("\n");
-            al = hm.get(sk);
-            for (Person p: al) {
-                s.append(p.getBasicInfo()).append("\n");
+     * Splits Person(s) by their collection of favourite movies and writes each collection followed by the Person(s)
+     * that have that collection in common.
+     * @param out Where the collections and the Person(s) basic info are written.
+     */
+    private void splitPersonByMovies(ResultSink out) {
+        try (NetworkVersion v = pinVersion()) {
+            PersonColumns c = v.columns();
+            StringDictionary dictionary = StringDictionary.global();
+            MovieGrouping.Result groups = MovieGrouping.group(c);
+            for (int g = 0; g < groups.getCollections().size(); g++) {
+                String[] sorted = String.join(";", groups.getCollections().get(g)).split(";");
+                Arrays.sort(sorted);
+                out.line(Arrays.toString(sorted));
+                IntList al = groups.getMembers().get(g);
+                for (int i = 0; i < al.size(); i++) {          // Basic info read from the columns, without views
+                    int row = al.get(i);
+                    out.append(v.identifier(row)).append(" ").line(String.valueOf(dictionary.decode(c.get(PersonColumns.SURNAME, row))));
+                }
+                out.line("");
             }
-            s.append("\n");
         }
-        return s.toString();
     }
     /**
      * Prints all the collections of favourite and the user(s) basic info that share each collection to console.
      */
     private void printPersonByMoviesToConsole() {
-        System.out.println(splitPersonByMoviesString());
+        try (ResultSink out = ChannelSink.console()) {
+            splitPersonByMovies(out);
+            out.line("");
+        }
     }
     /**
      * Prints all the collections of favourite and the user(s) basic info that share each collection in the specified file.
      * @param filename File where we want to save the information.
      */
     private void printPersonByMoviesToFile(String filename) {
-        File f;
-        FileWriter fw;
-        StringBuilder s =  new StringBuilder();
-        try {
-            f = new File("files/" + filename);
-            fw = new FileWriter(f);
-            s.append(splitPersonByMoviesString());
-            fw.write(s.toString());
-            fw.close();
-        } catch (IOException e) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            splitPersonByMovies(out);
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error: File was not found");
         }
     }
     /**
-     * Method for using in other methods. Compares a person by its favourite movies. All movies have
-     * to be the same / it has to be the same collection.
-     * @param ob2 Movies of the comparing Person.
-     * @param ob1 Movies of the other comparing Person.
-     * @return Boolean true or false.
+     * Writes the Person(s) that have a movie among their favourite movies, if exist.
+     * @param movie The title of the movie.
+     * @param out Where the Person(s) basic info that have the given movie as favourite are written.
      */
-    public boolean equalsMovieCollection(String[] ob1, String[] ob2){
-        boolean result = false;
-        int counter=0;
-        for (String s : ob2) {
-            for (String v : ob1) {
-                if (s.equalsIgnoreCase(v)) {
-                    counter++;
-                }
-            }
-        }
-        if (counter == ob2.length && ob2.length == ob1.length){
-            result=true;
-        }
-        return result;
-    }
-    /**
-     * Method checks if a list of movie collections contains a certain collection
-     * @param c collections
-     * @param m certain collection
-     * @return if yes or no
-     */
-    private boolean containsMovieCollection(List<String[]> c, String[] m){
-        for (String[] k : c){
-            if (equalsMovieCollection(k,m)) {
-                return true;
+    private void getPersonWithMovie(String movie, ResultSink out) {
+        try {
+            ArrayList<Person> al = peopleOf(indexes.movies().byMovie(movie));
+            out.append("The user(s) with ").append(movie).line(" among their favourite movies is/are:");
+            for (Person p : al) {
+                out.line(p.getBasicInfo());
             }
+        } catch (PersonNotFoundException e) {
+            out.append("Error: Does not exist no one with the favourite movie ").append(movie).line("\n");
         }
-        return false;
-
     }
     /**
-     * Method that gets all different movie collections from the network
-     * @return a list of all different movie collections
+     * Prints the user(s) that have the specified movie among their favourite movies basic info in the console.
+     * @param movie Title of the movie.
      */
-    private List<String[]> getMovieCollections(){
-        List<String[]> collections = new LinkedList<>();
-        Collection<Person> tempArray = integerHashMap.values();
-        for (Person p : tempArray){
-            //if not already in list
-            if (!containsMovieCollection(collections,p.getMoviesdata()))
-                collections.add(p.getMoviesdata());
+    private void printPersonWithMovieToConsole(String movie) {
+        try (ResultSink out = ChannelSink.console()) {
+            getPersonWithMovie(movie, out);
+            out.line("");
         }
-        return collections;
     }
     /**
-     * Method that sorts the list containing all users by a chosen parameter.
-     * @param attribute One of the 11 attributes of Person.
-     * @return The list sorted by the specified attribute.
+     * Prints the user(s) that have the specified movie among their favourite movies basic info in the specified file.
+     * @param movie Title of the movie.
+     * @param filename File where we want to save the information.
      */
-    private ArrayList<Person> sortPersonList(String attribute, ArrayList<Person> personList){
-        switch (attribute){
-            case "identifier":
-                personList.sort(Person.CprIdentifier);
-                break;
-            case "name":
-                personList.sort(Person.CprName);
-                break;
-            case "surname":
-                personList.sort(Person.CprSurname);
-                break;
-            case "birthdate":
-                personList.sort(Person.CprBirthdate);
-                break;
-            case "gender":
-                personList.sort(Person.CprGender);
-                break;
-            case "birthplace":
-                personList.sort(Person.CprBirthplace);
-                break;
-            case "home":
-                personList.sort(Person.CprHome);
-                break;
-            case "groupcode":
-                personList.sort(Person.CprGroupcode);
-                break;
-            default :
-                break;
-        }
-        return personList;
-    }
-    /**
-     * Method that creates a list of all indexes in the peopleList that match the search.
-     * @param index Index found by binarysearch.
-     * @param searching The value to be searched for.
-     * @param attribute The attribute the value belongs to.
-     * @return A list of indexes.
-     */
-    private List<Integer> findAdjacentSearch(int index, String searching, String attribute){
-        List<Integer> indexes = new LinkedList<>();
-        ArrayList<Person> personList = sortPersonList(attribute, new ArrayList<>(integerHashMap.values()));
-        int current;
-        indexes.add(index);
-        switch (attribute){
-            case "identifier":
-                // Iterate upwards until we hit the end or a different value
-                current = index + 1;
-                while (current < personList.size() && personList.get(current).getIdentifier().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current++;
-                }
-                // Iterate downwards until we hit the start or a different value
-                current = index - 1;
-                while (current >= 0 && personList.get(current).getIdentifier().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current--;
-                }
-                break;
-            case "name":
-                // Iterate upwards until we hit the end or a different value
-                current = index + 1;
-                while (current < personList.size() && personList.get(current).getName().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current++;
-                }
-                // Iterate downwards until we hit the start or a different value
-                current = index - 1;
-                while (current >= 0 && personList.get(current).getName().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current--;
-                }
-                break;
-            case "surname":
-                // Iterate upwards until we hit the end or a different value
-                current = index + 1;
-                while (current < personList.size() && personList.get(current).getSurname().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current++;
-                }
-                // Iterate downwards until we hit the start or a different value
-                current = index - 1;
-                while (current >= 0 && personList.get(current).getSurname().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current--;
-                }
-                break;
-            case "birthdate":
-                // Iterate upwards until we hit the end or a different value
-                current = index + 1;
-                while (current < personList.size() && personList.get(current).getBirthdate().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current++;
-                }
-                // Iterate downwards until we hit the start or a different value
-                current = index - 1;
-                while (current >= 0 && personList.get(current).getBirthdate().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current--;
-                }
-                break;
-            case "gender":
-                // Iterate upwards until we hit the end or a different value
-                current = index + 1;
-                while (current < personList.size() && personList.get(current).getGender().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current++;
-                }
-                // Iterate downwards until we hit the start or a different value
-                current = index - 1;
-                while (current >= 0 && personList.get(current).getGender().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current--;
-                }
-                break;
-            case "birthplace":
-                // Iterate upwards until we hit the end or a different value
-                current = index + 1;
-                while (current < personList.size() && personList.get(current).getBirthplace().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current++;
-                }
-                // Iterate downwards until we hit the start or a different value
-                current = index - 1;
-                while (current >= 0 && personList.get(current).getBirthplace().equalsIgnoreCase(searching))
-                {
-                    indexes.add(current);
-                    current--;
-                }
-                break;
-            case "home":
-                // Iterate upwards until we hit the end or a different value
-                current = index + 1;
-                while (current < personList.size() && personList.get(current).getHome().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current++;
-                }
-                // Iterate downwards until we hit the start or a different value
-                current = index - 1;
-                while (current >= 0 && personList.get(current).getHome().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current--;
-                }
-                break;
-            case "groupcode":
-                // Iterate upwards until we hit the end or a different value
-                current = index + 1;
-                while (current < personList.size() && personList.get(current).getGroupcode().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current++;
-                }
-                // Iterate downwards until we hit the start or a different value
-                current = index - 1;
-                while (current >= 0 && personList.get(current).getGroupcode().equalsIgnoreCase(searching)) {
-                    indexes.add(current);
-                    current--;
-                }
-                break;
+    private void printPersonWithMovieToFile(String movie, String filename) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            getPersonWithMovie(movie, out);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error: File was not found");
         }
-        return indexes;
     }
     /**
      * Method that searches the list containg all users for a certain Person that has the desired attribute(s). Only one attribute at a time, but in case of a array
      * type Attribute, the user must write a single string, containing all desired strings speparated by ";".
-     * Prints the found person(s).
      * @param searching the value(s) to be found in a person.
      * @param attribute the attribute the value(s) belong to.
-     * @return a linked list with all indexes that match the search.
+     * @return a linked list with the indexes in the Social Network of the users that match the search.
      */
-    private List<Integer> searchPersonList(String searching, String attribute, ArrayList<Person> personList){
-        System.out.println("Searching...");
-        sortPersonList(attribute, personList);
-        Person p = new Person();
+    private List<Integer> searchPersonList(String searching, String attribute){
         List<Integer> results = new LinkedList<>();
-        int auxilary;
-        switch (attribute){
-            case "identifier":
-                p.setIdentifier(searching);
-                int index = Collections.binarySearch(personList, p, Person.CprIdentifier);
-                if (index>=0) {
-                    results.add(index);
-                }
-                break;
-            case "name":
-                p.setName(searching);
-                int index1 = Collections.binarySearch(personList, p, Person.CprName);
-                if (index1>=0){
-                    results = findAdjacentSearch(index1,searching,attribute);
-                }
-                break;
-            case "surname":
-                p.setSurname(searching);
-                int index2 = Collections.binarySearch(personList, p, Person.CprSurname);
-                if (index2>=0) {
-                    results = findAdjacentSearch(index2, searching, attribute);
-                }
-                break;
-            case "birthdate":
-                p.setBirthdate(searching);
-                int index3 = Collections.binarySearch(personList, p, Person.CprBirthdate);
-                if (index3>=0) {
-                    results = findAdjacentSearch(index3, searching, attribute);
-                }
-                break;
-            case "gender":
-                p.setGender(searching);
-                int index4 = Collections.binarySearch(personList, p, Person.CprGender);
-                if (index4>=0) {
-                    results = findAdjacentSearch(index4, searching, attribute);
-                }
-                break;
-            case "birthplace":
-                p.setBirthplace(searching);
-                int index5 = Collections.binarySearch(personList, p, Person.CprBirthplace);
-                if (index5>=0) {
-                    results = findAdjacentSearch(index5, searching, attribute);
-                }
-                break;
-            case "home":
-                p.setHome(searching);
-                int index6 = Collections.binarySearch(personList, p, Person.CprHome);
-                if (index6>=0) {
-                    results = findAdjacentSearch(index6, searching, attribute);
-                }
-                break;
-            case "studydata":
-                //In case more studydata want to be compared, separate them only with ;.
-                String[] aux = searching.split(";");
-                for (Person k : personList){
-                    if (k.equalsStudydata(aux)){
-                        auxilary = getIndex(k, personList);
-                        if (auxilary != -1){
-                            results.add(auxilary);
-                        }
-                    }
-                }
-                break;
-            case "workdata":
-                //In case more workdata want to be compared, separate them only with ;.
-                String[] aux1 = searching.split(";");
-                for (Person k : personList){
-                    if (k.equalsWorkdata(aux1)){
-                        auxilary = getIndex(k, personList);
-                        if (auxilary != -1){
-                            results.add(auxilary);
-                        }
-                    }
-                }
-                break;
-            case "movies":
-                //In case more movies want to be compared, separate them only with ;.
-                String[] aux2 = searching.split(";");
-                for (Person k : personList){
-                    if (k.equalsMovies(aux2)){
-                        auxilary = getIndex(k, personList);
-                        if (auxilary != -1){
-                            results.add(auxilary);
-                        }
-                    }
-                }
-                break;
-            case "groupcode":
-                p.setGroupcode(searching);
-                int index7 = Collections.binarySearch(personList, p, Person.CprGroupcode);
-                if (index7>=0) {
-                    results = findAdjacentSearch(index7, searching, attribute);
-                }
-                break;
-            default :
-                break;
+        int[] found = indexes.byValue(attribute, searching);
+        if (found != null) {                                // Attributes with a sorted view
+            for (int i : found) results.add(i);
+            return results;
+        }
+        //In case more studydata, workdata or movies want to be compared, separate them only with ;.
+        found = indexes.containingAll(attribute, searching.split(";"));
+        if (found != null) {
+            for (int i : found) results.add(i);
         }
         return results;
     }
     /**
-     * Simply prints all results of a search. This is the method used for searching for the user.
-     * @param searching What to be searched for.
-     * @param attribute Where to search for it.
+     * Finds the people that match all the predicates of a query (see PersonQuery).
+     * @param query The query.
+     * @return Copies of the people found, in the order they were added to the Social Network.
      */
-    private void printSearchedPersonList(String searching, String attribute, ArrayList<Person> personList){
-        List<Integer> results = searchPersonList(searching, attribute, personList);
-        if (results.size()>0){
-            System.out.println("Found:");
-            for (Integer i : results){
-                System.out.println(personList.get(i).toString());
+    public ArrayList<Person> findPeople(PersonQuery query) {
+        long stamp = lock.readLock();
+        try {
+            ArrayList<Person> res = new ArrayList<Person>();
+            for (int i : query.run(indexes, columns).getPeople()) {
+                res.add(people[i].detach());
+            }
+            return res;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    /**
+     * Parses a query, writes the plan followed and the people found.
+     * @param text The query, e.g. birthplace=Donostia AND year in 1985..1990 AND movies=Avatar
+     * @param out Where the plan and the people are written.
+     * @throws IllegalArgumentException If the query does not follow the format.
+     */
+    private void printQueryResult(String text, ResultSink out) {
+        PersonQuery.Result result = PersonQuery.parse(text).run(indexes, columns);
+        out.line(result.getPlan());
+        if (result.getPeople().length > 0) {
+            out.line("Found:");
+            for (int i : result.getPeople()) {
+                out.line(people[i].toString());
             }
         }
         else {
-            System.out.println("Nothing was found with your parameter in this attribute.");
+            out.line("Nothing was found with your query.");
         }
-
     }
     /**
-     * Returns the index of a person in the list.
-     * @param p person
-     * @return index
+     * Simply writes all results of a search. This is the method used for searching for the user.
+     * @param searching What to be searched for.
+     * @param attribute Where to search for it.
+     * @param out Where the people found are written.
      */
-    private int getIndex (Person p, ArrayList<Person> personList){
-        for (int i = 0; i < personList.size(); i++){
-            if (p.equals(personList.get(i))) {
-                return i;
+    private void printSearchedPersonList(String searching, String attribute, ResultSink out){
+        out.line("Searching...");
+        List<Integer> results = searchPersonList(searching, attribute);
+        if (results.size()>0){
+            out.line("Found:");
+            for (Integer i : results){
+                out.line(people[i].toString());
             }
         }
-        return -1;
+        else {
+            out.line("Nothing was found with your parameter in this attribute.");
+        }
+
     }
 
     // 3rd milestone
     /**
      * Obtains the shortest chain of relations between person1 and person2 users in the Social Network.
+     * If the landmark index is built (see LandmarkIndex), it answers without searching when it proves that there is
+     * no chain, and otherwise its upper bound limits the depth of the bidirectional Breadth-First Search (see
+     * ChainSearch) that finds the chain. The chain is always the one of the search, so it does not depend on
+     * whether the index was built.
      * @param person1 Initial Person's identifier.
      * @param person2 Final Person's identifier.
      * @return LinkedList of Persons with the shortest chain of relations.
      * @throws RelationDoesNotExistException if the relation chain does not exist in the Social Network.
+     * @throws PersonNotFoundException if any of the identifiers does not exist in the Social Network.
      */
     private LinkedList<Person> shortestChain(String person1, String person2) throws RelationDoesNotExistException, PersonNotFoundException {
-        int[] previous = bfs(person1, person2);
-        int actual = personHashMap.get(new Person(person2));
-        int indexp1 = personHashMap.get(new Person(person1));
+        int indexp1 = identifiers.get(person1);
+        int indexp2 = identifiers.get(person2);
+        if (indexp1 == IdentifierMap.NOT_FOUND || indexp2 == IdentifierMap.NOT_FOUND) throw new PersonNotFoundException();
+        int[] offsets = adjacencyList.offsets();
+        int[] neighbors = adjacencyList.neighbors();
+        int maxLength = Integer.MAX_VALUE;
+        if (landmarks.isBuilt() && indexp1 != indexp2) {
+            int[] bounds = landmarks.estimate(offsets, neighbors, numUsers, indexp1, indexp2);
+            if (bounds[0] == LandmarkIndex.UNREACHABLE) throw new RelationDoesNotExistException();     // Proved without searching
+            if (bounds[1] != LandmarkIndex.UNKNOWN) maxLength = bounds[1];
+        }
+        int[] chain = chainSearch.get().shortestChain(offsets, neighbors, numUsers, indexp1, indexp2, maxLength);
+        if (chain == null) throw new RelationDoesNotExistException();
         LinkedList<Person> res = new LinkedList<Person>();
-        res.addFirst(integerHashMap.get(actual));
-        while (actual != indexp1) {
-            actual = previous[actual];
-            res.addFirst(integerHashMap.get(actual));
+        for (int i : chain) {
+            res.addLast(people[i]);
         }
         return res;
     }
     /**
-     * Makes a Breadth-First Search in the graph to find the shortest chain of relations between person1 and person2 users in
-     * the SocialNetwork.
+     * Gives a String with an estimation of the degrees of separation between person1 and person2 users in the
+     * Social Network, given by the landmark index (see LandmarkIndex), that is built the first time it is used.
      * @param person1 Initial Person's identifier.
      * @param person2 Final Person's identifier.
-     * @return Array that reference to the previous person in the relation chain.
-     * @throws RelationDoesNotExistException if the relation chain does not exist in the Social Network.
-     */
-    private int[] bfs(String person1, String person2) throws RelationDoesNotExistException, PersonNotFoundException {
-        Queue<Integer> queue = new LinkedList<Integer>();
-        boolean[] visited = new boolean[numUsers];
-        int[] previous = new int[numUsers];
-        int indexp1, indexp2;
-        try {
-            indexp1 = personHashMap.get(new Person(person1));
-            indexp2 = personHashMap.get(new Person(person2));
-        } catch (NullPointerException e) {
-            throw new PersonNotFoundException();
-        }
-        queue.offer(indexp1);
-        while (!queue.isEmpty()) {
-            indexp1 = queue.poll();
-            visited[indexp1] = true;
-            for (int i = 0; i < adjacencyList.get(indexp1).size(); i++) {
-                int actual = adjacencyList.get(indexp1).get(i);
-                if (actual == indexp2) {
-                    visited[actual] = true;
-                    previous[actual] = indexp1;
-                    return previous;
-                }
-                if (!visited[actual]) {
-                    visited[actual] = true;
-                    previous[actual] = indexp1;
-                    queue.offer(actual);
-                }
-            }
-        }
-        throw new RelationDoesNotExistException();
-    }
-    /**
-     * Gives a String representation of the shortest chain of relations between person1 and person2 users in the Social Network.
+     * @return String with the bounds of the degrees of separation.
+     */
+    private String degreesOfSeparationString(String person1, String person2) {
+        int indexp1 = identifiers.get(person1);
+        int indexp2 = identifiers.get(person2);
+        if (indexp1 == IdentifierMap.NOT_FOUND || indexp2 == IdentifierMap.NOT_FOUND) return "Error: Person does not exist\n";
+        int[] bounds = landmarks.estimate(adjacencyList.offsets(), adjacencyList.neighbors(), numUsers, indexp1, indexp2);
+        StringBuilder s = new StringBuilder("Degrees of separation between ").append(person1).append(" and ").append(person2).append(": ");
+        if (bounds[0] == LandmarkIndex.UNREACHABLE) s.append("they are not related by any chain");
+        else if (bounds[1] == LandmarkIndex.UNKNOWN) s.append("unknown");
+        else if (bounds[0] == bounds[1]) s.append(bounds[0]);
+        else s.append("between ").append(bounds[0]).append(" and ").append(bounds[1]);
+        return s.append("\n").toString();
+    }
+    /**
+     * Writes the shortest chain of relations between person1 and person2 users in the Social Network.
      * @param person1 Initial Person's identifier.
      * @param person2 Final Person's identifier.
-     * @return String representation of the shortest chain of relations.
+     * @param out Where the chain of relations is written.
      */
-    private String shortestChainString(String person1, String person2) {
-        StringBuilder s = new StringBuilder();
-        s.append("This is the shortest chain of relations between ").append(person1).append(" and ").append(person2).append(":\n");
+    private void shortestChain(String person1, String person2, ResultSink out) {
+        out.append("This is the shortest chain of relations between ").append(person1).append(" and ").append(person2).line(":");
         try {
             LinkedList<Person> res = shortestChain(person1, person2);
             while (!res.isEmpty()) {
-                s.append(" - ").append(res.getFirst().getBasicInfo()).append("\n");
+                out.append(" - ").line(res.getFirst().getBasicInfo());
                 res.removeFirst();
             }
         }
         catch (RelationDoesNotExistException e) {
-            s.append("Error: Relation does not exist");
+            out.append("Error: Relation does not exist");
         }
         catch (PersonNotFoundException e) {
-            s.append("Error: Person does not exist");
+            out.append("Error: Person does not exist");
         }
-        return s.toString();
     }
     /**
      * Prints the shortest chain of relations and the user(s) basic info to console.
      */
     private void printShortestChainToConsole(String person1, String person2) {
-        System.out.println(shortestChainString(person1, person2));
+        try (ResultSink out = ChannelSink.console()) {
+            shortestChain(person1, person2, out);
+            out.line("");
+        }
     }
     /**
      * Prints the shortest chain of relations and the user(s) basic info in the specified file.
      * @param filename File where we want to save the information.
      */
     private void printShortestChainToFile(String person1, String person2, String filename) {
-        File f;
-        FileWriter fw;
-        StringBuilder s =  new StringBuilder();
-        try {
-            f = new File("files/" + filename);
-            fw = new FileWriter(f);
-            s.append(shortestChainString(person1, person2));
-            fw.write(s.toString());
-            fw.close();
-        } catch (IOException e) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            shortestChain(person1, person2, out);
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error: File was not found");
         }
     }
     /**
-     * Obtains the longest chain of relations between person1 and person2 users in the Social Network.
+     * Obtains the longest chain of relations between person1 and person2 users in the Social Network (see
+     * LongestChainSearch) in a version of the network.
+     * @param v The version.
      * @param person1 Initial Person's identifier.
      * @param person2 Final Person's identifier.
-     * @return ArrayList of Persons with the longest chain of relations.
+     * @param seconds Time limit of the search, 0 for no limit.
+     * @return The chain of indexes and if it is the longest one or only the longest one found in time.
      * @throws RelationDoesNotExistException if the relation chain does not exist in the Social Network.
-     */
-    private Stack<Person> longestChain(Person person1, Person person2) {
-        Stack<Person> path = new Stack<Person>();
-        Set<Person> onPath = new LinkedHashSet<Person>();
-        Stack<Person> maxStack;
-        Stack<Person> finalStack = new Stack<Person>();
-        return longestChainBacktracking(person1, person2, path, onPath, new Stack<Person>());
+     * @throws PersonNotFoundException if one of the Persons is not in the Social Network.
+     */
+    private LongestChainSearch.Result longestChain(NetworkVersion v, String person1, String person2, int seconds) throws RelationDoesNotExistException, PersonNotFoundException {
+        int indexp1 = v.indexOf(person1);
+        int indexp2 = v.indexOf(person2);
+        if (indexp1 == IdentifierMap.NOT_FOUND || indexp2 == IdentifierMap.NOT_FOUND) throw new PersonNotFoundException();
+        LongestChainSearch.Result res = LongestChainSearch.find(v.offsets(), v.neighbors(), v.getUsers(), indexp1, indexp2, seconds * 1000000000L);
+        if (res == null) throw new RelationDoesNotExistException();
+        return res;
     }
     /**
-     * Obtains the longest chain of relations between person1 and person2 users in the Social Network.
-     * @param person1 Actual Person's identifier.
+     * Writes the longest chain of relations between person1 and person2 users in the Social Network.
+     * It searches the current version of the network (see NetworkVersion), so it does not hold the lock while people
+     * and relations are added.
+     * @param person1 Initial Person's identifier.
      * @param person2 Final Person's identifier.
-     * @param path Stack that contains the actual chain of relations.
-     * @param onPath Set to check if the Person's have been added to the actual chain.
-     * @param maxStack Stack with the longest chain of relations found until now.
-     * @return Stack of Persons with the longest chain of relations.
-     * @throws RelationDoesNotExistException if the relation chain does not exist in the Social Network.
+     * @param seconds Time limit of the search, 0 for no limit.
+     * @param out Where the chain of relations is written.
+     */
+    private void longestChain(String person1, String person2, int seconds, ResultSink out) {
+        out.append("This is the longest chain of relations between ").append(person1).append(" and ").append(person2).line(":");
+        try (NetworkVersion v = pinVersion()) {
+            LongestChainSearch.Result res = longestChain(v, person1, person2, seconds);
+            for (int i : res.getChain()) {
+                out.append(" - ").line(v.person(i).getBasicInfo());
+            }
+            if (!res.isComplete()) {
+                out.line("Time limit reached, this is the longest chain found so far");
+            }
+        }
+        catch (RelationDoesNotExistException e) {
+            out.append("Error: Relation does not exist");
+        }
+        catch (PersonNotFoundException e) {
+            out.append("Error: Person does not exist");
+        }
+    }
+    /**
+     * Prints the longest chain of relations and the user(s) basic info to console.
      */
-    private Stack<Person> longestChainBacktracking(Person person1, Person person2, Stack<Person> path, Set<Person> onPath, Stack<Person> maxStack){
-        path.push(person1);
-        onPath.add(person1);
-        if (person1.equals(person2)) {
-            if (maxStack.size() < path.size()){
-                maxStack = (Stack<Person>) path.clone();
+    private void printLongestChainToConsole(String person1, String person2, int seconds) {
+        try (ResultSink out = ChannelSink.console()) {
+            longestChain(person1, person2, seconds, out);
+            out.line("");
+        }
+    }
+    /**
+     * Prints the longest chain of relations and the user(s) basic info in the specified file.
+     * @param filename File where we want to save the information.
+     */
+    private void printLongestChainToFile(String person1, String person2, int seconds, String filename) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            longestChain(person1, person2, seconds, out);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error: File was not found");
+        }
+    }
+    /**
+     * Writes the cliques of the Social Network (see CliqueFinder), searched in its current version (see
+     * NetworkVersion).
+     * @param k Minimum number of people of the maximal cliques, or 0 for only one maximum clique.
+     * @param out Where the cliques and the basic info of their people are written.
+     */
+    private void cliques(int k, ResultSink out) {
+        try (NetworkVersion v = pinVersion()) {
+            cliques(v, k, out);
+        }
+    }
+    /**
+     * Writes the cliques of a version of the Social Network.
+     */
+    private void cliques(NetworkVersion v, int k, ResultSink out) {
+        CliqueFinder finder = new CliqueFinder(v.offsets(), v.neighbors(), v.getUsers());
+        ArrayList<int[]> cliques = new ArrayList<int[]>();
+        if (k == 0) {
+            int[] max = finder.maximumClique();
+            if (max.length > 1) cliques.add(max);
+            out.line("This is a maximum clique of the Social Network:");
+        } else {
+            cliques = finder.maximalCliques(k);
+            out.append("These are the ").append(String.valueOf(cliques.size())).append(" maximal cliques of at least ").append(String.valueOf(k)).line(" people:");
+        }
+        if (cliques.isEmpty()) {
+            out.line("Error: There are no cliques");
+        }
+        for (int[] clique : cliques) {
+            out.append("Clique of ").append(String.valueOf(clique.length)).line(" people:");
+            for (int index : clique) {
+                out.append(" - ").line(v.person(index).getBasicInfo());
             }
-            onPath.remove(person1);
-            path.pop();
         }
-        else {
-            for (int k : adjacencyList.get(personHashMap.get(person1))) {
-                if (!onPath.contains(integerHashMap.get(k))) {
-                    maxStack = longestChainBacktracking(integerHashMap.get(k), person2, path, onPath, maxStack);
-                }
+    }
+    /**
+     * Prints the cliques and the user(s) basic info to console.
+     */
+    private void printCliquesToConsole(int k) {
+        try (ResultSink out = ChannelSink.console()) {
+            cliques(k, out);
+            out.line("");
+        }
+    }
+    /**
+     * Prints the cliques and the user(s) basic info in the specified file.
+     * @param filename File where we want to save the information.
+     */
+    private void printCliquesToFile(int k, String filename) {
+        try (ResultSink out = ChannelSink.file(new File("files/" + filename).toPath())) {
+            cliques(k, out);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error: File was not found");
+        }
+    }
+
+    // Concurrency
+    /**
+     * Publishes a version of the people and the relations as they are now (see NetworkVersion). It is called at the
+     * end of each write, by the writer, that holds the write lock.
+     */
+    private void publish() {
+        NetworkVersion previous = version;
+        version = new NetworkVersion(previous == null ? 1 : previous.getNumber() + 1, numUsers, people, identifiers.freeze(),
+                columns.freeze(), adjacencyList.freeze());
+    }
+    /**
+     * Pins the current version of the Social Network, without locking: it does not change while it is read, whatever
+     * is added after. It must be closed when it is no longer read, e.g. with try-with-resources.
+     * @return The current version.
+     */
+    public NetworkVersion pinVersion() {
+        return version.pin();
+    }
+    /**
+     * Getter of the number of users, read without locking if no one is adding people at the same time.
+     * @return Number of users of the Social Network.
+     */
+    public int getNumUsers() {
+        long stamp = lock.tryOptimisticRead();
+        int n = numUsers;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            n = numUsers;
+            lock.unlockRead(stamp);
+        }
+        return n;
+    }
+    /**
+     * Finds a person by their identifier, without locking if no one is adding people at the same time.
+     * @param identifier User ID of the person.
+     * @return A copy of the person, or null if no one has that identifier.
+     */
+    public Person getPerson(String identifier) {
+        long stamp = lock.tryOptimisticRead();
+        Person p = null;
+        try {
+            p = copyOf(identifier);
+        } catch (RuntimeException e) {                      // A writer was resizing the arrays, read again below
+            stamp = 0L;
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                p = copyOf(identifier);
+            } finally {
+                lock.unlockRead(stamp);
             }
-            path.pop();
-            onPath.remove(person1);
         }
-        return maxStack;
+        return p;
     }
     /**
-     * Gives a String representation of the shortest chain of relations between person1 and person2 users in the Social Network.
-     * @param person1 Initial Person's identifier.
-     * @param person2 Final Person's identifier.
-     * @return String representation of the shortest chain of relations.
+     * Copies the person with an identifier.
      */
-    private String longestChainString(String person1, String person2) {
-        StringBuilder s = new StringBuilder();
-        s.append("This is the longest chain of relations between ").append(person1).append(" and ").append(person2).append(":\n");
+    private Person copyOf(String identifier) {
+        int index = identifiers.get(identifier);
+        return index == IdentifierMap.NOT_FOUND ? null : people[index].detach();
+    }
+    /**
+     * Checks the invariants of the structures of the Social Network: every relation is stored in both directions,
+     * once and not with the same user, the relation count agrees with the CSR arrays, and all the stores have one
+     * entry per user, each identifier mapping to the person with that identifier.
+     * @return The invariants broken, empty if there are none.
+     */
+    ArrayList<String> checkInvariants() {
+        long stamp = lock.readLock();
         try {
-            Stack<Person> res = longestChain(integerHashMap.get(personHashMap.get(new Person(person1))), integerHashMap.get(personHashMap.get(new Person(person2))));
-            if (res.isEmpty()) {
-                s.append("Error: Relation does not exist");
-            } else {
-                for (Person p : res) {
-                    s.append(" - ").append(p.getBasicInfo()).append("\n");
+            ArrayList<String> broken = new ArrayList<String>();
+            int[] offsets = adjacencyList.offsets();
+            int[] neighbors = adjacencyList.neighbors();
+            if (adjacencyList.vertexCount() != numUsers || columns.size() != numUsers || identifiers.size() != numUsers) {
+                broken.add("Users: " + numUsers + ", graph: " + adjacencyList.vertexCount() + ", columns: " + columns.size() + ", identifiers: " + identifiers.size());
+            }
+            if (offsets[numUsers] != 2L * adjacencyList.edgeCount()) {
+                broken.add("Relations: " + adjacencyList.edgeCount() + ", CSR entries: " + offsets[numUsers]);
+            }
+            LongHashSet directed = new LongHashSet(offsets[numUsers]);
+            for (int u = 0; u < numUsers; u++) {
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    if (neighbors[i] == u) broken.add("Relation of " + u + " with itself");
+                    if (!directed.add(((long) u << 32) | neighbors[i])) broken.add("Relation " + u + "-" + neighbors[i] + " repeated");
+                }
+            }
+            for (int u = 0; u < numUsers; u++) {
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    if (!directed.contains(((long) neighbors[i] << 32) | u)) broken.add("Relation " + u + "-" + neighbors[i] + " not symmetric");
                 }
             }
-        } catch (NullPointerException e) {              // Is thrown if we map a person that does not exist
-            s.append("Error: Person does not exist");
+            for (int i = 0; i < numUsers; i++) {
+                if (identifiers.get(people[i].getIdentifier()) != i) broken.add("Identifier " + people[i].getIdentifier() + " does not map to " + i);
+            }
+            NetworkVersion v = version;
+            if (v.getUsers() != numUsers || v.getRelations() != adjacencyList.edgeCount()) {
+                broken.add("Version " + v.getNumber() + " has " + v.getUsers() + " users and " + v.getRelations() + " relations, it is not the network of the last write");
+            }
+            return broken;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Durability
+    /**
+     * Replays the mutation log (see MutationLog), so the Social Network has again the changes of the last runs, and
+     * opens it to append the next ones. Only the menu keeps a log, and only if the system property socialnetwork.log
+     * gives its file (e.g. files/mutations.log); batches and stress checks never write to it. It is synced every
+     * socialnetwork.log.interval milliseconds (10 by default) or every socialnetwork.log.bytes bytes appended (65536
+     * by default).
+     */
+    private void recover() {
+        String name = System.getProperty("socialnetwork.log", "");
+        if (name.isEmpty() || log != null) return;
+        Path file = Paths.get(name);
+        try {
+            ArrayList<MutationLog.Record> records = MutationLog.read(file);
+            for (MutationLog.Record r : records) {
+                replay(r);
+            }
+            if (!records.isEmpty()) System.out.println("Recovered " + records.size() + " change(s) from " + name + "\n");
+            log = MutationLog.open(file, Long.getLong("socialnetwork.log.interval", 10), Integer.getInteger("socialnetwork.log.bytes", 65536));
+        } catch (IOException e) {
+            System.out.println("Error: The mutation log " + name + " can not be opened, the changes will not be kept");
         }
-        return s.toString();
     }
     /**
-     * Prints the longest chain of relations and the user(s) basic info to console.
+     * Applies a record of the mutation log again.
+     * @param r The record.
      */
-    private void printLongestChainToConsole(String person1, String person2) {
-        System.out.println(longestChainString(person1, person2));
+    private void replay(MutationLog.Record r) {
+        String[] a = r.getArguments();
+        try {
+            switch (r.getType()) {
+                case MutationLog.PERSON:
+                    addPerson(a[0]);
+                    break;
+                case MutationLog.RELATION:
+                    addRelation(a[0], a[1]);
+                    break;
+                case MutationLog.LOAD_PEOPLE:
+                    addPeopleFromFile(a[0]);
+                    break;
+                case MutationLog.LOAD_RELATIONS:
+                    addRelationsFromFile(a[0]);
+                    break;
+                case MutationLog.LOAD_SNAPSHOT:
+                    loadSnapshot(a[0]);
+                    break;
+                default:
+                    System.out.println("Error: Unknown change " + r.getType() + " in the mutation log");
+            }
+        } catch (PersonAlreadyAtSocialNetwork | RelationAlreadyAtSocialNetwork | PersonNotFoundException
+                | IllegalArgumentException e) {
+            System.out.println("Error: A change of the mutation log couldn't be applied again");
+        }
     }
     /**
-     * Prints the longest chain of relations and the user(s) basic info in the specified file.
-     * @param filename File where we want to save the information.
+     * Appends a change to the mutation log, if there is one. The caller holds the write lock.
+     * @param type Type of the change (see MutationLog).
+     * @param arguments Arguments of the change.
      */
-    private void printLongestChainToFile(String person1, String person2, String filename) {
-        File f;
-        FileWriter fw;
-        StringBuilder s =  new StringBuilder();
+    private void logChange(byte type, String... arguments) {
+        if (log != null) log.append(type, arguments);
+    }
+    /**
+     * Replaces the mutation log, if there is one, with one that only loads a snapshot.
+     * @param snapshot Name of the snapshot file, that has all the people and relations.
+     */
+    private void checkpoint(String snapshot) {
+        if (log == null) return;
         try {
-            f = new File("files/" + filename);
-            fw = new FileWriter(f);
-            s.append(longestChainString(person1, person2));
-            fw.write(s.toString());
-            fw.close();
+            log.checkpoint(snapshot);
         } catch (IOException e) {
-            System.out.println("Error: File was not found");
+            System.out.println("Error: The mutation log couldn't be replaced, it still has all the changes");
+        }
+    }
+    /**
+     * Forces the last changes to the disk and closes the mutation log, when no more changes will be made.
+     */
+    public void closeLog() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (UncheckedIOException e) {
+            System.out.println("Error: The last changes couldn't be written to the mutation log");
+        }
+    }
+
+    // Batch mode
+    /**
+     * Executes one command of a batch (see BatchMode) without asking anything, writing its results in a sink.
+     * Loading commands print their errors to the console as the menu does.
+     * The commands that load or add people or relations hold the write lock. The long queries (longest, cliques,
+     * residential, collections) read a version of the network (see NetworkVersion) and do not hold any lock, nor does
+     * "stress", that runs a StressCheck on a private Social Network. stats takes the read lock by itself, as it also
+     * reads the indexes, which are not in the versions; the rest hold the read lock.
+     * @param command The command, e.g. "friends Alvarez" or "shortest Fern33 Paul12".
+     * @param out Where the results are written.
+     * @throws IllegalArgumentException If the command does not exist or has wrong arguments.
+     */
+    public void execute(String command, ResultSink out) {
+        String name = BatchMode.commandName(command);
+        if (name.equals("stress")) {
+            String[] w = command.trim().split("\\s+");
+            if (w.length != 3) throw new IllegalArgumentException("Use: stress READERS SECONDS");
+            out.append(StressCheck.run(Integer.parseInt(w[1]), Integer.parseInt(w[2])));
+            return;
+        }
+        if (name.equals("longest") || name.equals("cliques") || name.equals("residential") || name.equals("collections")
+                || name.equals("stats")) {
+            execute(command, name, out);
+            return;
+        }
+        boolean write = name.startsWith("load ") || name.startsWith("add ");
+        long stamp = write ? lock.writeLock() : lock.readLock();
+        try {
+            execute(command, name, out);
+        } finally {
+            lock.unlock(stamp);
         }
     }
+    /**
+     * Executes one command of a batch, the caller holds the lock it needs, if any.
+     * @param command The command.
+     * @param name Name of the command (see BatchMode.commandName).
+     * @param out Where the results are written.
+     * @throws IllegalArgumentException If the command does not exist or has wrong arguments.
+     */
+    private void execute(String command, String name, ResultSink out) {
+        String[] w = command.trim().split("\\s+");
+        try {
+            switch (name) {
+                case "load people":
+                    addPeopleFromFile(argument(command, 2));
+                    break;
+                case "load relations":
+                    addRelationsFromFile(argument(command, 2));
+                    break;
+                case "load snapshot":
+                    loadSnapshot(argument(command, 2));
+                    break;
+                case "save snapshot":
+                    saveSnapshot(argument(command, 2));
+                    break;
+                case "save people":
+                    printPeopleToFile(argument(command, 2));
+                    break;
+                case "add person":
+                    addPerson(argument(command, 2));
+                    break;
+                case "add relation":
+                    if (w.length != 4) throw new IllegalArgumentException("Use: add relation ID1 ID2");
+                    if (w[2].equals(w[3])) throw new IllegalArgumentException("A user can not be related with himself/herself");
+                    try {
+                        addRelation(w[2], w[3]);
+                    } catch (PersonNotFoundException e) {
+                        out.line("Error: The realtion couldn't be added; at least one ID was not found on SocialNetwork");
+                    }
+                    break;
+                case "people":
+                    for (Person person : allPeople()) out.line(person.toString());
+                    break;
+                case "friends":
+                    findFriendsBySurname(argument(command, 1), out);
+                    break;
+                case "city":
+                    findPersonByCityBasic(argument(command, 1), out);
+                    break;
+                case "born":
+                    if (w.length != 3) throw new IllegalArgumentException("Use: born FROM TO");
+                    findPersonBetweenDates(w[1], w[2], out);
+                    break;
+                case "residential":
+                    findPersonByCityResidential(out);
+                    break;
+                case "collection":
+                    getPersonListMovies(argument(command, 1), out);
+                    break;
+                case "collections":
+                    splitPersonByMovies(out);
+                    break;
+                case "movie":
+                    getPersonWithMovie(argument(command, 1), out);
+                    break;
+                case "shortest":
+                    if (w.length != 3) throw new IllegalArgumentException("Use: shortest ID1 ID2");
+                    shortestChain(w[1], w[2], out);
+                    out.line("");
+                    break;
+                case "longest":
+                    if (w.length != 3 && w.length != 4) throw new IllegalArgumentException("Use: longest ID1 ID2 [SECONDS]");
+                    longestChain(w[1], w[2], w.length == 4 ? Integer.parseInt(w[3]) : 0, out);
+                    out.line("");
+                    break;
+                case "cliques":
+                    cliques(w.length > 1 ? Integer.parseInt(w[1]) : 0, out);
+                    break;
+                case "degrees":
+                    if (w.length != 3) throw new IllegalArgumentException("Use: degrees ID1 ID2");
+                    out.append(degreesOfSeparationString(w[1], w[2]));
+                    break;
+                case "search":
+                    if (w.length != 3) throw new IllegalArgumentException("Use: search ATTRIBUTE VALUE");
+                    printSearchedPersonList(w[2], w[1], out);
+                    break;
+                case "query":
+                    printQueryResult(argument(command, 1), out);
+                    break;
+                case "stats":
+                    printStatistics(out);
+                    break;
+                case "benchmark filters":
+                    out.append(ColumnFilters.benchmark(columns, allPeople(), w.length > 2 ? Integer.parseInt(w[2]) : 5));
+                    break;
+                case "benchmark traversal":
+                    out.append(AdjacencyGraph.benchmark(adjacencyList, w.length > 2 ? Integer.parseInt(w[2]) : 5));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command " + name);
+            }
+        } catch (PersonAlreadyAtSocialNetwork e) {
+            out.line("That person is already at the network");
+        } catch (RelationAlreadyAtSocialNetwork e) {
+            out.line("Error: That relation is already at the network");
+        } catch (PersonNotFoundException e) {
+            out.line("Error: Nothing was found");
+        }
+    }
+    /**
+     * Obtains the rest of a command after some words, that can contain spaces.
+     * @param command The command.
+     * @param words Number of words before the argument.
+     * @return The argument.
+     * @throws IllegalArgumentException If the command has no argument.
+     */
+    private static String argument(String command, int words) {
+        String[] w = command.trim().split("\\s+", words + 1);
+        if (w.length <= words) throw new IllegalArgumentException("Missing argument in " + command.trim());
+        return w[words];
+    }
 
 }
@@ -1,8 +1,15 @@
 package packSocialNetwork;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * SocialNetworkSimulation simulates how the packSocialNetwork.SocialNetwork works.
+ * Without arguments it shows the menu. With --batch COMMANDS [--out FILE] it runs the commands of a file (see
+ * BatchMode), writes their results to the console or to FILE, and prints the latency report.
+ * The changes made in the menu are kept in a mutation log and recovered on the next run (see MutationLog) only if
+ * the system property socialnetwork.log gives its file, e.g. -Dsocialnetwork.log=files/mutations.log; the
+ * properties socialnetwork.log.interval and socialnetwork.log.bytes set its group commit. Batches are never logged.
  * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
  *
  * @author Iyán Álvarez and Davy Wellinger
@@ -12,6 +19,20 @@ public class SocialNetworkSimulation {
 
     public static void main(String[] args) {
         SocialNetwork sn = SocialNetwork.getInstance();
-        sn.initialMenu();
+        if (args.length == 0) {
+            sn.initialMenu();
+            return;
+        }
+        if (!args[0].equals("--batch") || (args.length != 2 && !(args.length == 4 && args[2].equals("--out")))) {
+            System.out.println("Use: SocialNetworkSimulation [--batch COMMANDS [--out FILE]]");
+            return;
+        }
+        try (ResultSink out = args.length == 4 ? ChannelSink.file(Paths.get(args[3])) : ChannelSink.console()) {
+            String report = new BatchMode(sn).run(Paths.get(args[1]), out);
+            out.flush();
+            System.out.print(report);
+        } catch (IOException e) {
+            System.out.println("Error: File can not be found");
+        }
     }
 }
@@ -0,0 +1,180 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * SortedView keeps the people sorted by the value of one attribute, so all the people with a value are found with a
+ * lower bound and an upper bound binary search. It sorts the dictionary codes of the values, not the values: when
+ * case is ignored every distinct value is put in upper case once and shared by all the people that have it.
+ * The view is lazy: people added are only buffered, and the buffer is sorted and merged into the sorted arrays on the
+ * next query, so it is built on its first query and then only pays for the people added since the last one. The
+ * merge is synchronized, so several readers can query the view at the same time while no one adds people.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class SortedView {
+
+    // Attributes
+    private final IntFunction<String> values;               // Value of each code
+    private final boolean ignoreCase;
+    private String[] folded;                                // Upper case value of each code seen, if ignoreCase
+    private long foldedBytes;                               // Strings of folded that are not the values themselves
+    private int[] codes;                                    // Codes sorted by their value
+    private int[] people;                                   // Index of the person of each code
+    private int size;
+    private int[] pendingCodes;
+    private int[] pendingPeople;
+    private int pendingSize;
+    private long mergeNanos;
+
+    // Constructors
+    /**
+     * Creates an empty view.
+     * @param values Gives the value of each code added, for example the decode method of a StringDictionary.
+     * @param ignoreCase true to compare the values in upper case, as the comparators of Person do.
+     */
+    public SortedView(IntFunction<String> values, boolean ignoreCase) {
+        this.values = values;
+        this.ignoreCase = ignoreCase;
+        this.folded = new String[0];
+        this.codes = new int[0];
+        this.people = new int[0];
+        this.pendingCodes = new int[16];
+        this.pendingPeople = new int[16];
+    }
+
+    // Methods
+    /**
+     * Adds a person to the view, it is sorted on the next query.
+     * @param code Code of the value of the attribute of the person.
+     * @param index Index of the person in the Social Network.
+     */
+    public void add(int code, int index) {
+        if (pendingSize == pendingCodes.length) {
+            pendingCodes = Arrays.copyOf(pendingCodes, pendingSize * 2);
+            pendingPeople = Arrays.copyOf(pendingPeople, pendingSize * 2);
+        }
+        pendingCodes[pendingSize] = code;
+        pendingPeople[pendingSize++] = index;
+    }
+    /**
+     * Obtains the people with a value.
+     * @param value The value searched.
+     * @return Indexes of the people with the value, in the order they were added.
+     */
+    public int[] equalRange(String value) {
+        merge();
+        String key = ignoreCase ? value.toUpperCase() : value;
+        int lo = bound(key, false);
+        int hi = bound(key, true);
+        return Arrays.copyOfRange(people, lo, hi);
+    }
+    /**
+     * Counts the people with a value, without copying them.
+     * @param value The value searched.
+     * @return Number of people with the value.
+     */
+    public int count(String value) {
+        merge();
+        String key = ignoreCase ? value.toUpperCase() : value;
+        return bound(key, true) - bound(key, false);
+    }
+    /**
+     * Getter of the number of people in the view.
+     * @return Number of people added.
+     */
+    public int size() {
+        return size + pendingSize;
+    }
+    /**
+     * Getter of the time spent sorting.
+     * @return Nanoseconds spent sorting and merging the pending people since the view was created.
+     */
+    public long mergeNanos() {
+        return mergeNanos;
+    }
+    /**
+     * Estimates the heap used by the view, without the Strings of the values.
+     * @return Approximate size in bytes of the arrays and of the upper case copies of the values.
+     */
+    public long memoryBytes() {
+        return 4 * 16 + 8L * folded.length + foldedBytes + 4L * codes.length + 4L * people.length
+                + 4L * pendingCodes.length + 4L * pendingPeople.length;
+    }
+    /**
+     * Key of a code in the sorted arrays: its value, in upper case if ignoreCase. Each distinct value is put in upper
+     * case only once, the first time its code is merged.
+     */
+    private String key(int code) {
+        if (!ignoreCase) return values.apply(code);
+        if (code >= folded.length) folded = Arrays.copyOf(folded, Math.max(code + 1, folded.length * 2));
+        String key = folded[code];
+        if (key == null) {
+            String value = values.apply(code);
+            key = value.toUpperCase();
+            if (key != value) foldedBytes += StringDictionary.stringBytes(key);     // Not a copy if already upper case
+            folded[code] = key;
+        }
+        return key;
+    }
+    /**
+     * Position of the first code whose key is not before (lower bound) or after (upper bound) the given one.
+     */
+    private int bound(String key, boolean upper) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = key(codes[mid]).compareTo(key);
+            if (c < 0 || (upper && c == 0)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+    /**
+     * Compares the keys of two codes, without comparing the Strings if the codes are the same.
+     */
+    private int compare(int a, int b) {
+        return a == b ? 0 : key(a).compareTo(key(b));
+    }
+    /**
+     * Sorts the pending people and merges them into the sorted arrays.
+     */
+    private synchronized void merge() {
+        if (pendingSize == 0) return;
+        long start = System.nanoTime();
+        final int[] pc = pendingCodes;
+        Integer[] order = new Integer[pendingSize];
+        for (int i = 0; i < pendingSize; i++) {
+            key(pc[i]);                                     // Folded before the sort, which only reads them
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(pc[a], pc[b]));   // Stable, so equal values keep the order they were added
+        int total = size + pendingSize;
+        int[] nc = new int[total];
+        int[] np = new int[total];
+        int i = 0, j = 0, k = 0;
+        while (i < size || j < pendingSize) {               // People added before go first among equal values
+            if (j == pendingSize || (i < size && compare(codes[i], pc[order[j]]) <= 0)) {
+                nc[k] = codes[i];
+                np[k++] = people[i++];
+            }
+            else {
+                nc[k] = pc[order[j]];
+                np[k++] = pendingPeople[order[j++]];
+            }
+        }
+        codes = nc;
+        people = np;
+        size = total;
+        pendingSize = 0;
+        if (pendingCodes.length > 1024) {
+            pendingCodes = new int[16];
+            pendingPeople = new int[16];
+        }
+        mergeNanos += System.nanoTime() - start;
+    }
+
+}
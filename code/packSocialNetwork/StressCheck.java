@@ -0,0 +1,178 @@
+package packSocialNetwork;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StressCheck runs reader threads (chains, degrees of separation, searches, queries, lookups by identifier and
+ * checks of the versions of the network, that are read without the lock) against a Social Network while a writer
+ * thread adds people and relations, all through SocialNetwork.execute(), and then checks the invariants of the
+ * network (see SocialNetwork.checkInvariants): it is the proof that readers and writers can share it. Each run uses
+ * a new private Social Network with no mutation log, so the network and the log of the user are never touched.
+ * Only the identifiers are new for each person: the other values come from small fixed sets, because they are
+ * encoded in the global StringDictionary, that is shared with the network of the user and never shrinks.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class StressCheck {
+
+    // Attributes
+    private static final String[] CITIES = {"Donostia", "Irun", "Bilbao", "Madrid", "Tolosa"};
+    private static final String[] NAMES = {"Ane", "Jon", "Miren", "Iker", "Maite", "Unai", "Leire", "Mikel"};
+
+    // Constructors
+    /**
+     * Not instantiable, only static methods.
+     */
+    private StressCheck() {}
+
+    // Methods
+    /**
+     * Runs the check on a new private Social Network.
+     * @param readers Number of reader threads.
+     * @param seconds Duration of the check.
+     * @return The number of writes and reads done, the reads that failed and the invariants broken.
+     */
+    public static String run(int readers, int seconds) {
+        if (readers < 1 || seconds < 1) throw new IllegalArgumentException("Use at least 1 reader and 1 second");
+        SocialNetwork network = SocialNetwork.createPrivate();
+        String prefix = "Stress_";
+        long end = System.nanoTime() + seconds * 1000000000L;
+        AtomicInteger added = new AtomicInteger();          // People added so far: prefix0 .. prefix(added - 1)
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger relations = new AtomicInteger();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        ArrayList<String> errors = new ArrayList<String>();
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+        threads.add(new Thread(() -> {
+            ResultSink out = discard();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < end) {
+                int n = added.get();
+                String city = CITIES[random.nextInt(CITIES.length)];
+                network.execute("add person " + prefix + n + "," + NAMES[n % NAMES.length] + "," + prefix + "Surname,1-1-"
+                        + (1950 + n % 60) + ",male," + city + "," + city + ",School,Work,Movie" + n % 10 + ",G1", out);
+                if (network.getPerson(prefix + n) == null) {   // Only people really added are read
+                    rejected.incrementAndGet();
+                    break;
+                }
+                added.incrementAndGet();
+                for (int r = 0; r < 2 && n > 0; r++) {
+                    int m = random.nextInt(n);
+                    network.execute("add relation " + prefix + n + " " + prefix + m, out);
+                    relations.incrementAndGet();
+                }
+            }
+        }));
+        for (int t = 0; t < readers; t++) {
+            threads.add(new Thread(() -> {
+                ResultSink out = discard();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    int n = added.get();
+                    if (n == 0) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    String a = prefix + random.nextInt(n), b = prefix + random.nextInt(n);
+                    try {
+                        switch (random.nextInt(7)) {
+                            case 0:
+                                network.execute("shortest " + a + " " + b, out);
+                                break;
+                            case 1:
+                                network.execute("degrees " + a + " " + b, out);
+                                break;
+                            case 2:
+                                network.execute("search surname " + prefix + "Surname", out);
+                                break;
+                            case 3:
+                                network.execute("query birthplace=" + CITIES[random.nextInt(CITIES.length)] + " AND year in 1960..1980", out);
+                                break;
+                            case 4:
+                                network.execute("city " + CITIES[random.nextInt(CITIES.length)], out);
+                                break;
+                            case 5:
+                                checkVersion(network, a);
+                                break;
+                            default:
+                                Person p = network.getPerson(a);
+                                if (p == null || !p.getIdentifier().equals(a)) throw new IllegalStateException("Added person " + a + " not found");
+                                break;
+                        }
+                        reads.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        synchronized (errors) {
+                            if (errors.size() < 5) errors.add(e.toString());
+                        }
+                    }
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) thread.start();
+        try {
+            for (Thread thread : threads) thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        StringBuilder s = new StringBuilder();
+        s.append(String.format("Stress: %d readers and 1 writer for %.1f s: %d people added and %d relations requested, %d reads (%.1f reads/s), %d failed%n",
+                readers, elapsed, added.get(), relations.get(), reads.get(), reads.get() / elapsed, failed.get()));
+        if (rejected.get() > 0) s.append("Writer stopped: person ").append(prefix).append(added.get()).append(" was not added\n");
+        for (String e : errors) s.append("Failed read: ").append(e).append("\n");
+        ArrayList<String> broken = network.checkInvariants();
+        if (broken.isEmpty()) s.append("Invariants: OK\n");
+        for (int i = 0; i < Math.min(10, broken.size()); i++) s.append("Invariant broken: ").append(broken.get(i)).append("\n");
+        return s.toString();
+    }
+    /**
+     * Checks that the current version of the network has an added person, and that every relation of the person is
+     * also stored in the other direction.
+     * @param network The Social Network.
+     * @param identifier Identifier of the person.
+     * @throws IllegalStateException If the version does not have the person or one of their relations is not symmetric.
+     */
+    private static void checkVersion(SocialNetwork network, String identifier) {
+        try (NetworkVersion v = network.pinVersion()) {
+            int u = v.indexOf(identifier);
+            if (u == IdentifierMap.NOT_FOUND || !v.person(u).getIdentifier().equals(identifier)) {
+                throw new IllegalStateException("Added person " + identifier + " not found in version " + v.getNumber());
+            }
+            int[] offsets = v.offsets(), neighbors = v.neighbors();
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int w = neighbors[i];
+                boolean back = false;
+                for (int j = offsets[w]; j < offsets[w + 1] && !back; j++) back = neighbors[j] == u;
+                if (!back) throw new IllegalStateException("Relation " + u + "-" + w + " not symmetric in version " + v.getNumber());
+            }
+        }
+    }
+    /**
+     * Creates a sink that throws away what is written.
+     * @return The sink.
+     */
+    private static ResultSink discard() {
+        return new ResultSink() {
+            private long bytes;
+
+            @Override public ResultSink append(CharSequence text) {
+                bytes += text.length();
+                return this;
+            }
+            @Override public void flush() {}
+            @Override public long bytes() {
+                return bytes;
+            }
+            @Override public void close() {}
+        };
+    }
+
+}
@@ -0,0 +1,137 @@
+package packSocialNetwork;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StringDictionary maps each distinct String to an int code, so the people of the Social Network store small int
+ * codes instead of their own copy of values that repeat a lot (cities, schools, movies, groupcodes...), and every
+ * value is kept only once. Codes are given in the order the values are first seen and are never removed.
+ * Encoding is thread-safe, so people can be created by the parallel loaders: a code is published in the map only
+ * after its value is in the array, so whoever gets a code can decode it.
+ * This project is being developed on Data Structures and Algorithms subject on UPV/EHU at 2020/2021 academic year.
+ *
+ * @author Iyán Álvarez and Davy Wellinger
+ * @version thirdMilestone
+ */
+public class StringDictionary {
+
+    // Attributes
+    public static final int NULL = -1;                      // Code of null
+    private static final StringDictionary GLOBAL = new StringDictionary();
+    private final ConcurrentHashMap<String, Integer> codes;
+    private volatile String[] values;
+    private int size;
+
+    // Constructors
+    /**
+     * Creates an empty dictionary.
+     */
+    public StringDictionary() {
+        this.codes = new ConcurrentHashMap<String, Integer>();
+        this.values = new String[16];
+        this.size = 0;
+    }
+
+    // Methods
+    /**
+     * Getter of the dictionary shared by all the people.
+     * @return The global dictionary.
+     */
+    public static StringDictionary global() {
+        return GLOBAL;
+    }
+    /**
+     * Obtains the code of a value, giving it a new one if it is not in the dictionary.
+     * @param value The value, can be null.
+     * @return Its code, or NULL if the value is null.
+     */
+    public int encode(String value) {
+        if (value == null) return NULL;
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) return code;
+            String[] v = values;
+            if (size == v.length) v = Arrays.copyOf(v, size * 2);
+            v[size] = value;
+            values = v;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+    /**
+     * Obtains the codes of some values.
+     * @param values The values, can be null.
+     * @return Their codes in the same order, or null if values is null.
+     */
+    public int[] encode(String[] values) {
+        if (values == null) return null;
+        int[] res = new int[values.length];
+        for (int i = 0; i < res.length; i++) res[i] = encode(values[i]);
+        return res;
+    }
+    /**
+     * Obtains the value of a code.
+     * @param code A code given by this dictionary, or NULL.
+     * @return The value, or null if the code is NULL.
+     */
+    public String decode(int code) {
+        return code == NULL ? null : values[code];
+    }
+    /**
+     * Obtains the values of some codes.
+     * @param codes Codes given by this dictionary, can be null.
+     * @return New array with their values in the same order, or null if codes is null.
+     */
+    public String[] decode(int[] codes) {
+        if (codes == null) return null;
+        String[] v = values;
+        String[] res = new String[codes.length];
+        for (int i = 0; i < res.length; i++) res[i] = codes[i] == NULL ? null : v[codes[i]];
+        return res;
+    }
+    /**
+     * Obtains the codes of the values that are equal to a given one in upper case, as the sorted views compare them.
+     * @param value The value.
+     * @return Bitmap of the codes: bit c of word c / 64 is set iif the value of code c matches.
+     */
+    public long[] codesIgnoringCase(String value) {
+        String[] v = values;
+        int n = size();
+        String key = value.toUpperCase();
+        long[] res = new long[(n + 63) >>> 6];
+        for (int c = 0; c < n; c++) {
+            if (v[c].length() == key.length() && v[c].toUpperCase().equals(key)) res[c >>> 6] |= 1L << c;
+        }
+        return res;
+    }
+    /**
+     * Getter of the number of values.
+     * @return Number of distinct values encoded.
+     */
+    public synchronized int size() {
+        return size;
+    }
+    /**
+     * Estimates the heap used by the dictionary.
+     * @return Approximate size in bytes of the values, the array and the hash table.
+     */
+    public synchronized long memoryBytes() {
+        long bytes = 16 + 4L * values.length + 64 + 4L * Integer.highestOneBit(Math.max(1, size * 4 / 3)) * 2;
+        for (int i = 0; i < size; i++) {
+            bytes += stringBytes(values[i]) + 32 + 16;     // Value, map node and its Integer
+        }
+        return bytes;
+    }
+    /**
+     * Estimates the heap used by a String.
+     * @param s The String, can be null.
+     * @return Approximate size in bytes of the String object and its array, 0 if it is null.
+     */
+    public static long stringBytes(String s) {
+        return s == null ? 0 : 24 + ((16 + s.length() + 7) & ~7);
+    }
+
+}